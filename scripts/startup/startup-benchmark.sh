@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+# Time to first successful request against the stub model, for the plain jar and the fast-start
+# build (Spring AOT, then Spring AOT plus the AppCDS archive). Builds with -Pfast-start, starts each
+# variant RUNS times and polls POST /processrequest?output=zip, which needs no git, disk or
+# Backstage, until it answers 200.
+#
+#   scripts/startup/startup-benchmark.sh [runs]
+#
+# SKIP_BUILD=true reuses the last build. Results are written to target/startup-benchmark.csv.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+TIMEOUT_S=${TIMEOUT_S:-180}
+cd "$(dirname "$0")/../.."
+
+if [ "${SKIP_BUILD:-false}" != true ]; then
+	./mvnw -B -q -Pfast-start -Dfast-start.llm.provider=stub -DskipTests package
+fi
+JAR=$(basename "$(ls target/fast-start/*.jar | head -n 1)")
+APP_ARGS=(--server.port="$PORT" --spring.config.additional-location=file:scripts/startup/training.properties
+	--llm.provider=stub)
+RESULTS=target/startup-benchmark.csv
+echo "variant,run,first_request_ms,context_started_s" > "$RESULTS"
+
+# launch, poll until the first generation succeeds, record the elapsed time and stop the process
+measure() {
+	local variant=$1 run=$2
+	shift 2
+	local log="target/startup-$variant-$run.log"
+	local start status=000
+	start=$(date +%s%N)
+	java "$@" "${APP_ARGS[@]}" > "$log" 2>&1 &
+	local pid=$!
+	local deadline=$((SECONDS + TIMEOUT_S))
+	while [ "$status" != 200 ] && [ $SECONDS -lt $deadline ] && kill -0 $pid 2>/dev/null; do
+		status=$(curl -s -o /dev/null -w '%{http_code}' -X POST \
+			"http://localhost:$PORT/processrequest?prompt=startup&agent=Scaffold&output=zip" || true)
+		[ "$status" = 200 ] || sleep 0.05
+	done
+	local elapsed=$((($(date +%s%N) - start) / 1000000))
+	kill $pid 2>/dev/null || true
+	wait $pid 2>/dev/null || true
+	if [ "$status" != 200 ]; then
+		echo "$variant run $run: no successful request, see $log" >&2
+		exit 1
+	fi
+	local started
+	started=$(grep -oE 'Started [A-Za-z]+ in [0-9.]+' "$log" | grep -oE '[0-9.]+$' || true)
+	echo "$variant,$run,$elapsed,$started" >> "$RESULTS"
+	printf '%-8s run %d: first request after %6d ms, context started in %s s\n' "$variant" "$run" "$elapsed" "$started"
+}
+
+for run in $(seq 1 "$RUNS"); do
+	measure jar "$run" -jar "target/$JAR"
+	measure aot "$run" -Dspring.aot.enabled=true -jar "target/fast-start/$JAR"
+	measure aot+cds "$run" -XX:SharedArchiveFile=target/fast-start/application.jsa -Dspring.aot.enabled=true \
+		-jar "target/fast-start/$JAR"
+done
+
+echo
+for variant in jar aot aot+cds; do
+	grep "^$variant," "$RESULTS" | cut -d, -f3 | sort -n \
+		| awk -v variant="$variant" '{ ms[NR] = $1 } END { printf "%-8s median %d ms over %d runs\n", variant, ms[int((NR + 1) / 2)], NR }'
+done
@@ -0,0 +1,70 @@
+package com.WebVipers.gemini.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.WebVipers.gemini.service.GeminiApiService;
+
+/**
+ * deleteDirectoryWithStream on a populated scaffold tree. The tree is written
+ * in the per-invocation setup so only the delete is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeleteDirectoryBenchmark {
+
+	@Param({ "10", "100", "1000", "5000" })
+	private int files;
+
+	private List<SyntheticScaffold.GeneratedFile> generated;
+
+	private Path root;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws IOException {
+		generated = SyntheticScaffold.parse(SyntheticScaffold.generate(files, 40));
+	}
+
+	@Setup(Level.Invocation)
+	public void populate() throws IOException {
+		root = Files.createTempDirectory("scaffold-delete");
+		Files.createDirectories(root.resolve(".git"));
+		for (SyntheticScaffold.GeneratedFile file : generated) {
+			Path directory = root.resolve(FileWriteBenchmark.relative(file.path()));
+			Files.createDirectories(directory);
+			Files.writeString(directory.resolve(file.fileName()), file.content());
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void cleanUp() throws IOException {
+		FileWriteBenchmark.deleteRecursively(root);
+	}
+
+	@Benchmark
+	public void deleteDirectoryWithStream() throws IOException {
+		GeminiApiService.deleteDirectoryWithStream(root);
+	}
+
+}
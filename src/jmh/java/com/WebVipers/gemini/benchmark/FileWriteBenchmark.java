@@ -0,0 +1,107 @@
+package com.WebVipers.gemini.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.WebVipers.gemini.service.FileMaterializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Writing a parsed project to disk through the parallel materializer versus
+ * the one-file-at-a-time createDirectories/createFile/writeString sequence.
+ * Every invocation starts from a fresh directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileWriteBenchmark {
+
+	@Param({ "10", "100", "1000", "5000" })
+	private int files;
+
+	private List<SyntheticScaffold.GeneratedFile> generated;
+
+	private FileMaterializer materializer;
+
+	private Path root;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws IOException {
+		generated = SyntheticScaffold.parse(SyntheticScaffold.generate(files, 40));
+		materializer = new FileMaterializer(new SimpleMeterRegistry(), 4);
+		ReflectionTestUtils.setField(materializer, "maxPending", 256);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() throws IOException {
+		root = Files.createTempDirectory("scaffold-bench");
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDownInvocation() throws IOException {
+		deleteRecursively(root);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownTrial() {
+		materializer.destroy();
+	}
+
+	@Benchmark
+	public FileMaterializer.Stats materialize() throws IOException {
+		FileMaterializer.Batch batch = materializer.open(root);
+		for (SyntheticScaffold.GeneratedFile file : generated) {
+			batch.write(file.path(), file.fileName(), file.content());
+		}
+		return batch.await();
+	}
+
+	@Benchmark
+	public void writeSequentially() throws IOException {
+		for (SyntheticScaffold.GeneratedFile file : generated) {
+			Path directory = root.resolve(relative(file.path()));
+			Files.createDirectories(directory);
+			Path target = Files.createFile(directory.resolve(file.fileName()));
+			Files.writeString(target, file.content());
+		}
+	}
+
+	static String relative(String path) {
+		return path.startsWith("/") ? path.substring(1) : path;
+	}
+
+	static void deleteRecursively(Path root) throws IOException {
+		if (root == null || !Files.exists(root)) {
+			return;
+		}
+		try (var stream = Files.walk(root)) {
+			for (Path path : (Iterable<Path>) stream.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.WebVipers.gemini.benchmark;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.WebVipers.gemini.service.GitService;
+import com.WebVipers.gemini.service.PipelineListener;
+import com.WebVipers.gemini.service.RepositoryHandleCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * GitService add/commit on a repository that already holds a long history of
+ * generated commits, either as loose objects or packed the way the
+ * background gc leaves it. Commit latency should not grow with history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class GitHistoryBenchmark {
+
+	@Param({ "100", "1000", "3000" })
+	private int history;
+
+	@Param({ "false", "true" })
+	private boolean packed;
+
+	private RepositoryHandleCache repositoryHandles;
+
+	private GitService gitService;
+
+	private Path workTree;
+
+	private long revision;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws IOException, GitAPIException, URISyntaxException {
+		workTree = Files.createTempDirectory("bench-history");
+		repositoryHandles = new RepositoryHandleCache(new SimpleMeterRegistry());
+		gitService = GitPipelineBenchmark.gitService(repositoryHandles);
+		Git.init().setInitialBranch(GitPipelineBenchmark.BRANCH).setDirectory(workTree.toFile()).call().close();
+
+		List<SyntheticScaffold.GeneratedFile> generated = SyntheticScaffold.parse(SyntheticScaffold.generate(50, 40));
+		for (SyntheticScaffold.GeneratedFile file : generated) {
+			Path directory = workTree.resolve(FileWriteBenchmark.relative(file.path()));
+			Files.createDirectories(directory);
+			Files.writeString(directory.resolve(file.fileName()), file.content());
+		}
+		for (int i = 0; i < history; i++) {
+			changeOneFile();
+			gitService.addAndCommit("history " + i, ".", workTree.toString(), null, PipelineListener.NONE);
+		}
+		if (packed) {
+			try (Git git = Git.open(workTree.toFile())) {
+				git.gc().call();
+			}
+			repositoryHandles.invalidate(workTree.toString());
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void changeOneFile() throws IOException {
+		Files.writeString(workTree.resolve("CHANGES.md"), "revision " + revision++ + "\n");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownTrial() throws IOException {
+		repositoryHandles.destroy();
+		FileWriteBenchmark.deleteRecursively(workTree);
+	}
+
+	@Benchmark
+	public String addAndCommit() throws IOException, GitAPIException, URISyntaxException {
+		return gitService.addAndCommit("bench", ".", workTree.toString(), null, PipelineListener.NONE);
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.WebVipers.gemini.benchmark;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.WebVipers.gemini.service.GitService;
+import com.WebVipers.gemini.service.PipelineListener;
+import com.WebVipers.gemini.service.RepositoryHandleCache;
+import com.WebVipers.gemini.service.RepositoryMaintenance;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * GitService add/commit and add/commit/push on a generated working tree,
+ * pushing to a local bare repository. Each invocation changes one file so
+ * every commit has something to record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitPipelineBenchmark {
+
+	static final String BRANCH = "master";
+
+	@Param({ "10", "100", "1000", "5000" })
+	private int files;
+
+	private RepositoryHandleCache repositoryHandles;
+
+	private GitService gitService;
+
+	private Path workTree;
+
+	private Path remote;
+
+	private String remoteUrl;
+
+	private long revision;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws IOException, GitAPIException, URISyntaxException {
+		remote = Files.createTempDirectory("bench-remote");
+		Git.init().setBare(true).setInitialBranch(BRANCH).setDirectory(remote.toFile()).call().close();
+		remoteUrl = remote.toUri().toString();
+
+		workTree = Files.createTempDirectory("bench-worktree");
+		repositoryHandles = new RepositoryHandleCache(new SimpleMeterRegistry());
+		gitService = gitService(repositoryHandles);
+
+		List<SyntheticScaffold.GeneratedFile> generated = SyntheticScaffold
+				.parse(SyntheticScaffold.generate(files, 40));
+		for (SyntheticScaffold.GeneratedFile file : generated) {
+			Path directory = workTree.resolve(FileWriteBenchmark.relative(file.path()));
+			Files.createDirectories(directory);
+			Files.writeString(directory.resolve(file.fileName()), file.content());
+		}
+		gitService.commitAndPush("initial", ".", workTree.toString(), remoteUrl, PipelineListener.NONE);
+	}
+
+	/**
+	 * GitService wired as in the application, with background gc switched off
+	 * so it does not run during measurements.
+	 */
+	static GitService gitService(RepositoryHandleCache repositoryHandles) {
+		RepositoryMaintenance maintenance = new RepositoryMaintenance(new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(maintenance, "enabled", false);
+		GitService gitService = new GitService(new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(gitService, "username", "bench");
+		ReflectionTestUtils.setField(gitService, "password", "bench");
+		ReflectionTestUtils.setField(gitService, "branch", BRANCH);
+		ReflectionTestUtils.setField(gitService, "gitUserName", "bench");
+		ReflectionTestUtils.setField(gitService, "gitUserEmail", "bench@example.com");
+		ReflectionTestUtils.setField(gitService, "repositoryHandles", repositoryHandles);
+		ReflectionTestUtils.setField(gitService, "maintenance", maintenance);
+		return gitService;
+	}
+
+	@Setup(Level.Invocation)
+	public void changeOneFile() throws IOException {
+		Files.writeString(workTree.resolve("CHANGES.md"), "revision " + revision++ + "\n");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownTrial() throws IOException {
+		repositoryHandles.destroy();
+		FileWriteBenchmark.deleteRecursively(workTree);
+		FileWriteBenchmark.deleteRecursively(remote);
+	}
+
+	@Benchmark
+	public String addAndCommit() throws IOException, GitAPIException, URISyntaxException {
+		return gitService.addAndCommit("bench", ".", workTree.toString(), remoteUrl, PipelineListener.NONE);
+	}
+
+	@Benchmark
+	public String commitAndPush() throws IOException, GitAPIException, URISyntaxException {
+		return gitService.commitAndPush("bench", ".", workTree.toString(), remoteUrl, PipelineListener.NONE);
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.WebVipers.gemini.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.WebVipers.gemini.config.ExecutorConfig;
+import com.WebVipers.gemini.model.LlmRequest;
+import com.WebVipers.gemini.service.LlmService;
+import com.WebVipers.gemini.service.ScaffoldParser;
+import com.WebVipers.gemini.service.StubLlmProvider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Load test for the pipeline executor: a burst of jobs that each block on
+ * the stub model for latencyMs and then parse its scaffold, on platform
+ * threads (pipeline.executor.pool-size) or a virtual thread per job, at most
+ * pipeline.executor.virtual-pool-size at once. The time per burst shows how
+ * many jobs can block at once. Virtual threads need the java21 profile; on
+ * older JVMs that case falls back to platform threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PipelineConcurrencyBenchmark {
+
+	@Param({ "false", "true" })
+	private boolean virtual;
+
+	@Param({ "256" })
+	private int requests;
+
+	@Param({ "200" })
+	private long latencyMs;
+
+	private TaskExecutor executor;
+
+	private LlmService llmService;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		ExecutorConfig config = new ExecutorConfig();
+		ReflectionTestUtils.setField(config, "poolSize", 8);
+		ReflectionTestUtils.setField(config, "virtualPoolSize", 256);
+		ReflectionTestUtils.setField(config, "queueCapacity", requests);
+		ReflectionTestUtils.setField(config, "virtualThreads", virtual);
+		executor = config.pipelineExecutor();
+		if (executor instanceof InitializingBean initializing) {
+			initializing.afterPropertiesSet();
+		}
+
+		StubLlmProvider provider = new StubLlmProvider();
+		ReflectionTestUtils.setField(provider, "responseLocation", "readme.txt");
+		ReflectionTestUtils.setField(provider, "latencyMs", latencyMs);
+		ReflectionTestUtils.setField(provider, "chunkSize", 512);
+		provider.afterPropertiesSet();
+		llmService = new LlmService(new SimpleMeterRegistry(), virtual);
+		ReflectionTestUtils.setField(llmService, "provider", provider);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (executor instanceof DisposableBean disposable) {
+			disposable.destroy();
+		}
+		llmService.destroy();
+	}
+
+	@Benchmark
+	public int burst() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(requests);
+		AtomicInteger files = new AtomicInteger();
+		for (int i = 0; i < requests; i++) {
+			executor.execute(() -> {
+				try {
+					String text = llmService.generate(new LlmRequest("stub", "load test")).getText();
+					files.addAndGet(ScaffoldParser.parse(text).getFiles().size());
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		return files.get();
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.WebVipers.gemini.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.WebVipers.gemini.model.ScaffoldDocument;
+import com.WebVipers.gemini.service.ScaffoldParser;
+import com.WebVipers.gemini.service.ScaffoldStreamParser;
+
+/**
+ * Delimiter parsing of model output: the single-pass parser over the whole
+ * response, and the incremental parser fed as one block and in the small
+ * chunks a streamed response arrives in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScaffoldParserBenchmark {
+
+	private static final int CHUNK_SIZE = 256;
+
+	@Param({ "10", "100", "1000", "5000" })
+	private int files;
+
+	private String output;
+
+	@Setup
+	public void setUp() {
+		output = SyntheticScaffold.generate(files, 40);
+	}
+
+	@Benchmark
+	public int parseWhole(Blackhole blackhole) throws IOException {
+		ScaffoldStreamParser parser = new ScaffoldStreamParser(
+				(path, fileName, content) -> blackhole.consume(content));
+		parser.feed(output);
+		parser.finish();
+		return parser.getFileCount();
+	}
+
+	@Benchmark
+	public int parseInMemory(Blackhole blackhole) {
+		ScaffoldDocument document = ScaffoldParser.parse(output);
+		blackhole.consume(document);
+		return document.getFiles().size();
+	}
+
+	@Benchmark
+	public int parseStreamed(Blackhole blackhole) throws IOException {
+		ScaffoldStreamParser parser = new ScaffoldStreamParser(
+				(path, fileName, content) -> blackhole.consume(content));
+		for (int start = 0; start < output.length(); start += CHUNK_SIZE) {
+			parser.feed(output.subSequence(start, Math.min(output.length(), start + CHUNK_SIZE)));
+		}
+		parser.finish();
+		return parser.getFileCount();
+	}
+
+}
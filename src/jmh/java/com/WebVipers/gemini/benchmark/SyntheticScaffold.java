@@ -0,0 +1,50 @@
+package com.WebVipers.gemini.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.WebVipers.gemini.service.ScaffoldStreamParser;
+
+/**
+ * Builds model output in the $$$$ / &&&& / @@@@ scaffold format with a
+ * chosen number of files, so benchmarks can scale the input from a toy
+ * project to a multi-thousand file one.
+ */
+final class SyntheticScaffold {
+
+	record GeneratedFile(String path, String fileName, String content) {
+	}
+
+	private SyntheticScaffold() {
+	}
+
+	static String generate(int files, int linesPerFile) {
+		StringBuilder output = new StringBuilder(files * linesPerFile * 48);
+		output.append("Here's the code template for the requested project:\n\n");
+		for (int i = 0; i < files; i++) {
+			output.append("$$$$ src/module").append(i % 20).append("/package").append(i % 7).append('\n');
+			output.append("&&&& Generated").append(i).append(".java\n");
+			output.append("@@@@\n");
+			output.append("public class Generated").append(i).append(" {\n");
+			for (int line = 0; line < linesPerFile; line++) {
+				output.append("    private int field").append(line).append(" = ").append(line * i)
+						.append("; // padding\n");
+			}
+			output.append("}\n");
+			output.append("@@@@\n\n");
+			output.append("This class holds generated fields for module ").append(i % 20).append(".\n\n");
+		}
+		return output.toString();
+	}
+
+	static List<GeneratedFile> parse(String output) throws IOException {
+		List<GeneratedFile> files = new ArrayList<>();
+		ScaffoldStreamParser parser = new ScaffoldStreamParser(
+				(path, fileName, content) -> files.add(new GeneratedFile(path, fileName, content)));
+		parser.feed(output);
+		parser.finish();
+		return files;
+	}
+
+}
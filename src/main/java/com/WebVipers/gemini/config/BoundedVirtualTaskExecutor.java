@@ -0,0 +1,79 @@
+package com.WebVipers.gemini.config;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Starts a new virtual thread per task instead of pooling them. At most
+ * maxConcurrent tasks run at once; up to queueCapacity more wait on a
+ * semaphore in their own thread, and submissions beyond that are rejected
+ * like a full ThreadPoolTaskExecutor queue. On shutdown it waits up to
+ * awaitTerminationSeconds for submitted tasks to finish.
+ */
+public class BoundedVirtualTaskExecutor implements AsyncTaskExecutor, DisposableBean {
+
+	private final ThreadFactory threadFactory;
+
+	private final int maxSubmitted;
+
+	// running or waiting tasks
+	private final Semaphore submitted;
+
+	private final Semaphore running;
+
+	private final long awaitTerminationSeconds;
+
+	private volatile boolean shutdown;
+
+	public BoundedVirtualTaskExecutor(ThreadFactory threadFactory, int maxConcurrent, int queueCapacity,
+			long awaitTerminationSeconds) {
+		this.threadFactory = threadFactory;
+		this.maxSubmitted = Math.max(1, maxConcurrent) + Math.max(0, queueCapacity);
+		this.submitted = new Semaphore(maxSubmitted);
+		this.running = new Semaphore(Math.max(1, maxConcurrent), true);
+		this.awaitTerminationSeconds = awaitTerminationSeconds;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (shutdown || !submitted.tryAcquire()) {
+			throw new TaskRejectedException("Executor " + (shutdown ? "is shut down" : "queue is full")
+					+ ", did not accept task: " + task);
+		}
+		try {
+			threadFactory.newThread(() -> run(task)).start();
+		} catch (RuntimeException | Error e) {
+			submitted.release();
+			throw e;
+		}
+	}
+
+	private void run(Runnable task) {
+		try {
+			running.acquire();
+			try {
+				task.run();
+			} finally {
+				running.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			submitted.release();
+		}
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		shutdown = true;
+		if (submitted.tryAcquire(maxSubmitted, awaitTerminationSeconds, TimeUnit.SECONDS)) {
+			submitted.release(maxSubmitted);
+		}
+	}
+
+}
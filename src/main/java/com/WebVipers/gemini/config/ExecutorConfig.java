@@ -0,0 +1,109 @@
+package com.WebVipers.gemini.config;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+	private static final Logger logger = LoggerFactory.getLogger(ExecutorConfig.class);
+
+	@Value("${pipeline.executor.pool-size:8}")
+	private int poolSize;
+
+	@Value("${pipeline.executor.virtual-pool-size:256}")
+	private int virtualPoolSize;
+
+	@Value("${pipeline.executor.queue-capacity:100}")
+	private int queueCapacity;
+
+	@Value("${mvc.async.pool-size:16}")
+	private int mvcPoolSize;
+
+	@Value("${mvc.async.queue-capacity:100}")
+	private int mvcQueueCapacity;
+
+	@Value("${spring.threads.virtual.enabled:false}")
+	private boolean virtualThreads;
+
+	/**
+	 * Bounded executor for asynchronous scaffold/spec jobs. Submissions beyond
+	 * the queue capacity are rejected instead of piling up. With virtual
+	 * threads every job gets a fresh virtual thread, since virtual threads are
+	 * not meant to be pooled, and a semaphore lets virtual-pool-size of them
+	 * block on the model, git or Backstage at once.
+	 */
+	@Bean
+	public TaskExecutor pipelineExecutor() {
+		if (useVirtualThreads(virtualThreads)) {
+			return new BoundedVirtualTaskExecutor(threadFactory("pipeline-", true), virtualPoolSize, queueCapacity, 30);
+		}
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("pipeline-");
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		executor.setAwaitTerminationSeconds(30);
+		return executor;
+	}
+
+	/**
+	 * Executor for Spring MVC async work: StreamingResponseBody archives and
+	 * Callable results. Declaring pipelineExecutor makes Spring Boot skip its
+	 * own applicationTaskExecutor, which would leave MVC on an unbounded
+	 * SimpleAsyncTaskExecutor; Boot's MVC configuration picks this one up by
+	 * that bean name instead.
+	 */
+	@Bean(name = "applicationTaskExecutor")
+	public AsyncTaskExecutor mvcTaskExecutor() {
+		if (useVirtualThreads(virtualThreads)) {
+			return new BoundedVirtualTaskExecutor(threadFactory("mvc-async-", true), mvcPoolSize, mvcQueueCapacity, 0);
+		}
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(mvcPoolSize);
+		executor.setMaxPoolSize(mvcPoolSize);
+		executor.setQueueCapacity(mvcQueueCapacity);
+		executor.setThreadNamePrefix("mvc-async-");
+		return executor;
+	}
+
+	/**
+	 * Whether virtual threads were asked for and the running JVM has them.
+	 */
+	public static boolean useVirtualThreads(boolean enabled) {
+		if (enabled && Runtime.version().feature() < 21) {
+			logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads, using platform threads",
+					Runtime.version().feature());
+			return false;
+		}
+		return enabled;
+	}
+
+	/**
+	 * Threads named prefix + counter for the internal executors: virtual
+	 * threads when requested and available, daemon platform threads otherwise.
+	 */
+	public static ThreadFactory threadFactory(String prefix, boolean virtual) {
+		if (useVirtualThreads(virtual)) {
+			return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+		}
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+}
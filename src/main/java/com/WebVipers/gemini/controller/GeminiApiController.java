@@ -1,17 +1,56 @@
 package com.WebVipers.gemini.controller;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.WebVipers.gemini.model.ArtifactGeneration;
+import com.WebVipers.gemini.model.BulkScaffoldRequest;
+import com.WebVipers.gemini.model.PipelineStage;
+import com.WebVipers.gemini.model.ScaffoldJob;
+import com.WebVipers.gemini.service.AdmissionControl;
+import com.WebVipers.gemini.service.AdmissionRejectedException;
+import com.WebVipers.gemini.service.ArchiveWriter;
+import com.WebVipers.gemini.service.AttachmentTooLargeException;
+import com.WebVipers.gemini.service.AttachmentService;
+import com.WebVipers.gemini.service.ArtifactStore;
+import com.WebVipers.gemini.service.BulkScaffoldService;
 import com.WebVipers.gemini.service.GeminiApiService;
+import com.WebVipers.gemini.service.PipelineMetrics;
+import com.WebVipers.gemini.service.ScaffoldJobService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:3000")
@@ -22,36 +61,292 @@ public class GeminiApiController {
 	@Autowired
 	private GeminiApiService geminiApiService;
 
+	@Autowired
+	private ScaffoldJobService scaffoldJobService;
+
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+
+	@Autowired
+	private BulkScaffoldService bulkScaffoldService;
+
+	@Autowired
+	private ArtifactStore artifactStore;
+
+	@Autowired
+	private AttachmentService attachmentService;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	// remote addresses whose X-Client-Id header is trusted for fair queueing
+	@Value("${admission.trusted-proxies:}")
+	private Set<String> trustedProxies;
+
 	@PostMapping("/processrequest")
-	public ResponseEntity<HashMap<String, Object>> processRequest(@RequestParam("prompt") String prompt,@RequestParam("agent") String agent) {
+	public ResponseEntity<HashMap<String, Object>> processRequest(@RequestParam("prompt") String prompt,@RequestParam("agent") String agent,
+			@RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache,
+			HttpServletRequest httpRequest) {
 		LOG.info("\n\nINSIDE CLASS == GeminiApiController, METHOD == Process Request(); ");
 
+		AdmissionControl.Permit permit;
 		try {
+			permit = admissionControl.acquire(agent, clientOf(httpRequest));
+		} catch (AdmissionRejectedException e) {
+			return tooManyRequests(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return getResponseFormat(HttpStatus.SERVICE_UNAVAILABLE, "Failure", "interrupted while queued");
+		}
+		PipelineMetrics.StageTimer stageTimer = pipelineMetrics.start(agent);
+		try (permit) {
 			
-			String result = null;
-			
-			if (agent.equalsIgnoreCase("Scaffold")) {
-			 result = geminiApiService.getScafoldResponse(prompt);
-			}else {
-				result = geminiApiService.getSpecResponse(prompt);
-			}
+			String result = geminiApiService.process(prompt, agent, bypassCache, stageTimer);
 			if (result != null) {
 				LOG.info("\nRequest processed successfully.");
-				return getResponseFormat(HttpStatus.OK, "Success", result);
+				stageTimer.finish(PipelineMetrics.OUTCOME_SUCCESS);
+				return withStages(getResponseFormat(HttpStatus.OK, "Success", result), stageTimer);
 			} else {
 				LOG.info("\nRequest processing failed.");
 				LOG.info("\nEXITING METHOD == processRequest() OF CLASS == GeminiApiController \n\n");
-				return getResponseFormat(HttpStatus.INTERNAL_SERVER_ERROR, "Failure", "unable to read data");
+				stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+				return withStages(getResponseFormat(HttpStatus.INTERNAL_SERVER_ERROR, "Failure", "unable to read data"),
+						stageTimer);
 			}
 		} catch (Exception e) {
 			LOG.severe("\nError in processRequest() method of GeminiApiController: " + e.getMessage());
 			LOG.info("\nEXITING METHOD == processRequest() OF CLASS == GeminiApiController \n\n");
-			return getResponseFormat(HttpStatus.INTERNAL_SERVER_ERROR, "Failure", e.getMessage());
+			stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+			return withStages(getResponseFormat(HttpStatus.INTERNAL_SERVER_ERROR, "Failure", e.getMessage()),
+					stageTimer);
 		}
 	}
-	
+
+	/**
+	 * Multipart variant of processrequest: specs, images or zipped source sent
+	 * as files parts go to the model along with the prompt. Small files are
+	 * inlined, larger ones are streamed to the model's file store.
+	 */
+	@PostMapping(path = "/processrequest", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity<HashMap<String, Object>> processRequestWithFiles(@RequestParam("prompt") String prompt,
+			@RequestParam("agent") String agent,
+			@RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache,
+			@RequestPart(value = "files", required = false) List<MultipartFile> files, HttpServletRequest httpRequest) {
+		LOG.info("\n\nINSIDE CLASS == GeminiApiController, METHOD == processRequestWithFiles(); ");
+
+		AdmissionControl.Permit permit;
+		try {
+			permit = admissionControl.acquire(agent, clientOf(httpRequest));
+		} catch (AdmissionRejectedException e) {
+			return tooManyRequests(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return getResponseFormat(HttpStatus.SERVICE_UNAVAILABLE, "Failure", "interrupted while queued");
+		}
+		PipelineMetrics.StageTimer stageTimer = pipelineMetrics.start(agent);
+		try (permit; AttachmentService.Attachments attachments = attachmentService.prepare(files)) {
+			String result = geminiApiService.process(prompt, agent, bypassCache, attachments.get(), stageTimer);
+			if (result == null) {
+				stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+				return withStages(getResponseFormat(HttpStatus.INTERNAL_SERVER_ERROR, "Failure", "unable to read data"),
+						stageTimer);
+			}
+			LOG.info("\nRequest with " + attachments.get().size() + " files processed successfully.");
+			stageTimer.finish(PipelineMetrics.OUTCOME_SUCCESS);
+			return withStages(getResponseFormat(HttpStatus.OK, "Success", result), stageTimer);
+		} catch (MaxUploadSizeExceededException | AttachmentTooLargeException e) {
+			stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+			return getResponseFormat(HttpStatus.PAYLOAD_TOO_LARGE, "Failure", e.getMessage());
+		} catch (IllegalArgumentException e) {
+			stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+			return getResponseFormat(HttpStatus.BAD_REQUEST, "Failure", e.getMessage());
+		} catch (TaskRejectedException e) {
+			LOG.warning("\nUpload capacity exhausted, rejecting request: " + e.getMessage());
+			stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+			return getResponseFormat(HttpStatus.SERVICE_UNAVAILABLE, "Failure", "upload capacity exhausted, retry later");
+		} catch (Exception e) {
+			LOG.severe("\nError in processRequestWithFiles() method of GeminiApiController: " + e.getMessage());
+			stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+			return withStages(getResponseFormat(HttpStatus.INTERNAL_SERVER_ERROR, "Failure", e.getMessage()),
+					stageTimer);
+		}
+	}
+
+	/**
+	 * Generate and return the project as a zip or tar.gz (output=zip|tar.gz)
+	 * streamed while the model is still answering. Nothing is written to disk,
+	 * committed, pushed or registered. Uploaded files are not supported here,
+	 * so a multipart request with output is rejected rather than having its
+	 * files dropped.
+	 */
+	@PostMapping(path = "/processrequest", params = "output")
+	public ResponseEntity<StreamingResponseBody> processRequestArchive(@RequestParam("prompt") String prompt,
+			@RequestParam("agent") String agent,
+			@RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache,
+			@RequestParam("output") String output, HttpServletRequest httpRequest) {
+		LOG.info("\n\nINSIDE CLASS == GeminiApiController, METHOD == processRequestArchive(); ");
+		Optional<ArchiveWriter.Format> format = ArchiveWriter.Format.of(output);
+		if (format.isEmpty() || StringUtils.startsWithIgnoreCase(httpRequest.getContentType(), "multipart/")) {
+			return ResponseEntity.badRequest().build();
+		}
+		AdmissionControl.Permit permit;
+		try {
+			permit = admissionControl.acquire(agent, clientOf(httpRequest));
+		} catch (AdmissionRejectedException e) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds())).build();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		}
+		// the permit is held until the archive has been streamed, and given back when the async request ends
+		// even if the body never ran: executor rejection, async timeout or a client that went away
+		WebAsyncUtils.getAsyncManager(httpRequest).registerCallableInterceptor(permit,
+				new CallableProcessingInterceptor() {
+					@Override
+					public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+						permit.close();
+					}
+				});
+		StreamingResponseBody body = outputStream -> {
+			PipelineMetrics.StageTimer stageTimer = pipelineMetrics.start(agent);
+			try (permit; ArchiveWriter archive = ArchiveWriter.open(format.get(), outputStream)) {
+				geminiApiService.streamArchive(prompt, agent, bypassCache, archive, stageTimer);
+				stageTimer.finish(PipelineMetrics.OUTCOME_SUCCESS);
+			} catch (Exception e) {
+				LOG.severe("\nError in processRequestArchive() method of GeminiApiController: " + e.getMessage());
+				stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+				throw e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+			}
+		};
+		String fileName = PipelineMetrics.agentTag(agent);
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(format.get().getMediaType()))
+				.header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+						.filename(fileName + "." + format.get().getExtension()).build().toString())
+				.body(body);
+	}
+
+	@PostMapping("/jobs")
+	public ResponseEntity<HashMap<String, Object>> submitJob(@RequestParam("prompt") String prompt,@RequestParam("agent") String agent,
+			@RequestParam(value = "bypassCache", defaultValue = "false") boolean bypassCache) {
+		LOG.info("\n\nINSIDE CLASS == GeminiApiController, METHOD == submitJob(); ");
+		try {
+			ScaffoldJob job = scaffoldJobService.submit(prompt, agent, bypassCache);
+			return getResponseFormat(HttpStatus.ACCEPTED, "Accepted", job);
+		} catch (TaskRejectedException e) {
+			LOG.warning("\nJob queue is full, rejecting request: " + e.getMessage());
+			return getResponseFormat(HttpStatus.SERVICE_UNAVAILABLE, "Failure", "job queue is full, retry later");
+		}
+	}
+
+	@PostMapping(path = "/bulk", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> processBulk(@RequestBody BulkScaffoldRequest request) {
+		LOG.info("\n\nINSIDE CLASS == GeminiApiController, METHOD == processBulk(); ");
+		if (request.getItems() == null || request.getItems().size() > bulkScaffoldService.getMaxItems()) {
+			return ResponseEntity.badRequest().build();
+		}
+		try {
+			return ResponseEntity.ok(bulkScaffoldService.run(request));
+		} catch (AdmissionRejectedException e) {
+			LOG.warning("\nRejecting bulk request: " + e.getMessage());
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds())).build();
+		}
+	}
+
+	@GetMapping("/jobs/{jobId}")
+	public ResponseEntity<HashMap<String, Object>> getJobStatus(@PathVariable("jobId") String jobId) {
+		ScaffoldJob job = scaffoldJobService.getJob(jobId);
+		if (job == null) {
+			return getResponseFormat(HttpStatus.NOT_FOUND, "Failure", "unknown job " + jobId);
+		}
+		return getResponseFormat(HttpStatus.OK, "Success", job);
+	}
+
+	@GetMapping("/jobs/{jobId}/result")
+	public ResponseEntity<HashMap<String, Object>> getJobResult(@PathVariable("jobId") String jobId) {
+		ScaffoldJob job = scaffoldJobService.getJob(jobId);
+		if (job == null) {
+			return getResponseFormat(HttpStatus.NOT_FOUND, "Failure", "unknown job " + jobId);
+		}
+		if (job.getStage() == PipelineStage.FAILED) {
+			return getResponseFormat(HttpStatus.INTERNAL_SERVER_ERROR, "Failure", job.getError());
+		}
+		if (job.getStage() != PipelineStage.COMPLETED) {
+			return getResponseFormat(HttpStatus.ACCEPTED, "Pending", job.getStage());
+		}
+		return getResponseFormat(HttpStatus.OK, "Success", job.getResult());
+	}
+
+	@GetMapping(path = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamJobEvents(@PathVariable("jobId") String jobId) {
+		ScaffoldJob job = scaffoldJobService.getJob(jobId);
+		if (job == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(scaffoldJobService.subscribe(job));
+	}
+
+	@GetMapping("/artifacts")
+	public ResponseEntity<HashMap<String, Object>> listArtifacts(
+			@RequestParam(value = "agent", required = false) String agent,
+			@RequestParam(value = "prompt", required = false) String prompt,
+			@RequestParam(value = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since,
+			@RequestParam(value = "until", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant until,
+			@RequestParam(value = "limit", defaultValue = "50") int limit) {
+		return getResponseFormat(HttpStatus.OK, "Success",
+				artifactStore.find(agent, prompt, since, until, Math.max(1, Math.min(limit, 1000))));
+	}
+
+	/**
+	 * Stream a stored generation back as a zip, straight from the artifact
+	 * store.
+	 */
+	@GetMapping(path = "/artifacts/{id}/zip", produces = "application/zip")
+	public ResponseEntity<StreamingResponseBody> downloadArtifact(@PathVariable("id") String id) {
+		Optional<ArtifactGeneration> generation = artifactStore.get(id);
+		if (generation.isEmpty()) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_DISPOSITION,
+						ContentDisposition.attachment().filename(id + ".zip").build().toString())
+				.body(outputStream -> artifactStore.writeZip(generation.get(), outputStream));
+	}
+
+	private ResponseEntity<HashMap<String, Object>> tooManyRequests(AdmissionRejectedException e) {
+		LOG.warning("\nRejecting request: " + e.getMessage());
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+				.body(getResponseFormat(HttpStatus.TOO_MANY_REQUESTS, "Failure", e.getMessage()).getBody());
+	}
+
+	/**
+	 * Caller identity for fair queueing: the authenticated user, else the
+	 * X-Client-Id header when the request comes from a trusted proxy, else the
+	 * remote address. Any other caller could pick a fresh header value per
+	 * request and get a queue of its own each time.
+	 */
+	private String clientOf(HttpServletRequest request) {
+		if (request.getUserPrincipal() != null) {
+			return "user:" + request.getUserPrincipal().getName();
+		}
+		String client = request.getHeader("X-Client-Id");
+		if (client != null && !client.isBlank() && trustedProxies.contains(request.getRemoteAddr())) {
+			return "client:" + client.trim();
+		}
+		return "address:" + request.getRemoteAddr();
+	}
+
+	private ResponseEntity<HashMap<String, Object>> withStages(ResponseEntity<HashMap<String, Object>> response,
+			PipelineMetrics.StageTimer stageTimer) {
+		response.getBody().put("stages", stageTimer.getBreakdown());
+		return response;
+	}
+
 	public ResponseEntity<HashMap<String, Object>> getResponseFormat(HttpStatus status, String message, Object data) {
-		int responseStatus = (status.equals(HttpStatus.OK)) ? 1 : 0;
+		int responseStatus = (status.is2xxSuccessful()) ? 1 : 0;
 
 		HashMap<String, Object> map = new HashMap<>();
 		map.put("responseCode", responseStatus);
@@ -0,0 +1,33 @@
+package com.WebVipers.gemini.controller;
+
+import java.util.HashMap;
+import java.util.logging.Logger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+/**
+ * Uploads over spring.servlet.multipart.max-file-size or max-request-size
+ * are rejected while the request is parsed, before any controller method
+ * runs, so they are answered here with the same 413 body the controller
+ * gives for the limits it checks itself.
+ */
+@RestControllerAdvice
+public class UploadLimitAdvice {
+
+	private static final Logger LOG = Logger.getLogger(UploadLimitAdvice.class.getName());
+
+	@ExceptionHandler(MaxUploadSizeExceededException.class)
+	public ResponseEntity<HashMap<String, Object>> uploadTooLarge(MaxUploadSizeExceededException e) {
+		LOG.warning("\nRejecting upload: " + e.getMessage());
+		HashMap<String, Object> map = new HashMap<>();
+		map.put("responseCode", 0);
+		map.put("message", "Failure");
+		map.put("data", e.getMessage());
+		return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(map);
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.WebVipers.gemini.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One file of a stored generation: its path inside the project and the
+ * SHA-256 of its content, which names the shared compressed blob.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArtifactFile {
+	private String path;
+	private String blob;
+	private long size;
+}
@@ -0,0 +1,32 @@
+package com.WebVipers.gemini.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Index entry for one generation kept in the artifact store.
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(value = { "fileCount", "totalBytes" }, allowGetters = true)
+public class ArtifactGeneration {
+	private String id;
+	private String agent;
+	private String prompt;
+	private Instant createdAt;
+	private List<ArtifactFile> files = new ArrayList<>();
+
+	public int getFileCount() {
+		return files.size();
+	}
+
+	public long getTotalBytes() {
+		return files.stream().mapToLong(ArtifactFile::getSize).sum();
+	}
+}
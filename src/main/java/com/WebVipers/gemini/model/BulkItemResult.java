@@ -0,0 +1,23 @@
+package com.WebVipers.gemini.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BulkItemResult {
+	private int index;
+	private String prompt;
+	private String agent;
+	private boolean success;
+	private String result;
+	private String error;
+	private int attempts;
+	private long elapsedMs;
+
+	public BulkItemResult(int index, BulkScaffoldItem item) {
+		this.index = index;
+		this.prompt = item.getPrompt();
+		this.agent = item.getAgent();
+	}
+}
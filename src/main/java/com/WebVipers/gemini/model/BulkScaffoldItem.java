@@ -0,0 +1,13 @@
+package com.WebVipers.gemini.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkScaffoldItem {
+	private String prompt;
+	private String agent;
+}
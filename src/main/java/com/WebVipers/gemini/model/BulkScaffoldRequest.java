@@ -0,0 +1,14 @@
+package com.WebVipers.gemini.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BulkScaffoldRequest {
+	private List<BulkScaffoldItem> items = new ArrayList<>();
+	private boolean bypassCache;
+}
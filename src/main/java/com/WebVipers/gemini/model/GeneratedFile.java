@@ -0,0 +1,18 @@
+package com.WebVipers.gemini.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One file of a generated scaffold. The content is usually a read-only view
+ * into the model response rather than a copy.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeneratedFile {
+	private String path;
+	private String fileName;
+	private CharSequence content;
+}
@@ -0,0 +1,25 @@
+package com.WebVipers.gemini.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Extra input sent along with a prompt: either the bytes themselves, for
+ * small files, or a reference to a file already uploaded to the backend.
+ * The digest is the SHA-256 of the content and keys cached responses.
+ */
+@Data
+@NoArgsConstructor
+public class LlmAttachment {
+	private String displayName;
+	private String mimeType;
+	private long size;
+	private String digest;
+	private byte[] data;
+	private String fileUri;
+	private String fileName;
+
+	public boolean isUploaded() {
+		return fileUri != null;
+	}
+}
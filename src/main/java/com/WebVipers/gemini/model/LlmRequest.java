@@ -0,0 +1,30 @@
+package com.WebVipers.gemini.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single prompt for an LLM backend, optionally with one attachment or a
+ * handle to context the backend already holds, plus any files the caller
+ * uploaded. When responseSchema holds a JSON schema the backend is asked for
+ * JSON matching it.
+ */
+@Data
+@NoArgsConstructor
+public class LlmRequest {
+	private String model;
+	private String prompt;
+	private byte[] attachment;
+	private String attachmentMimeType;
+	private String cachedContext;
+	private String responseSchema;
+	private List<LlmAttachment> attachments = new ArrayList<>();
+
+	public LlmRequest(String model, String prompt) {
+		this.model = model;
+		this.prompt = prompt;
+	}
+}
@@ -0,0 +1,24 @@
+package com.WebVipers.gemini.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Text produced by an LLM backend and the token counts it reported, keyed
+ * by type (prompt, candidates, cached, thoughts). queuedNanos is how long the
+ * call waited for a rate-limit token before it was sent.
+ */
+@Data
+@NoArgsConstructor
+public class LlmResponse {
+	private String text;
+	private Map<String, Integer> tokens = new LinkedHashMap<>();
+	private long queuedNanos;
+
+	public LlmResponse(String text) {
+		this.text = text;
+	}
+}
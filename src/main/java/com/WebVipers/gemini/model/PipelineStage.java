@@ -0,0 +1,16 @@
+package com.WebVipers.gemini.model;
+
+public enum PipelineStage {
+	QUEUED,
+	GENERATING,
+	WRITING_FILES,
+	COMMITTING,
+	PUSHING,
+	REGISTERING,
+	COMPLETED,
+	FAILED;
+
+	public boolean isTerminal() {
+		return this == COMPLETED || this == FAILED;
+	}
+}
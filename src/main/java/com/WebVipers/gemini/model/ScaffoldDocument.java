@@ -0,0 +1,24 @@
+package com.WebVipers.gemini.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The files found in a scaffold response, plus any malformed blocks that
+ * were skipped while parsing it. Structured (JSON) responses also carry the
+ * explanation for README.md separately.
+ */
+@Data
+@NoArgsConstructor
+public class ScaffoldDocument {
+	private List<GeneratedFile> files = new ArrayList<>();
+	private List<String> problems = new ArrayList<>();
+	private String readme;
+
+	public boolean isValid() {
+		return problems.isEmpty();
+	}
+}
@@ -0,0 +1,36 @@
+package com.WebVipers.gemini.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ScaffoldJob {
+	private String id;
+	private String prompt;
+	private String agent;
+	private boolean bypassCache;
+	private volatile PipelineStage stage;
+	private volatile String error;
+	@JsonIgnore
+	private volatile String result;
+	private volatile Map<String, Long> stageTimings;
+	private volatile String registration;
+	private volatile String registrationError;
+	private Instant submittedAt;
+	private volatile Instant updatedAt;
+
+	public ScaffoldJob(String id, String prompt, String agent) {
+		this.id = id;
+		this.prompt = prompt;
+		this.agent = agent;
+		this.stage = PipelineStage.QUEUED;
+		this.submittedAt = Instant.now();
+		this.updatedAt = this.submittedAt;
+	}
+}
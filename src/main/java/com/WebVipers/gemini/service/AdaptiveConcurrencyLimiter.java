@@ -0,0 +1,83 @@
+package com.WebVipers.gemini.service;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD concurrency limit: grows by one after a full window of successful
+ * calls and halves when the upstream answers with a rate-limit error.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	private final int maxLimit;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition released = lock.newCondition();
+
+	private int limit;
+
+	private int inFlight;
+
+	private int successes;
+
+	public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit) {
+		this.maxLimit = Math.max(1, maxLimit);
+		this.limit = Math.min(Math.max(1, initialLimit), this.maxLimit);
+	}
+
+	public void acquire() throws InterruptedException {
+		lock.lock();
+		try {
+			while (inFlight >= limit) {
+				released.await();
+			}
+			inFlight++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void release() {
+		lock.lock();
+		try {
+			inFlight--;
+			released.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void onSuccess() {
+		lock.lock();
+		try {
+			if (++successes >= limit && limit < maxLimit) {
+				limit++;
+				successes = 0;
+				released.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void onThrottled() {
+		lock.lock();
+		try {
+			limit = Math.max(1, limit / 2);
+			successes = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getLimit() {
+		lock.lock();
+		try {
+			return limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
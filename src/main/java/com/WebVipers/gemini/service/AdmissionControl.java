@@ -0,0 +1,267 @@
+package com.WebVipers.gemini.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Admission control for synchronous generation requests. Scaffold and spec
+ * requests each have their own concurrency limit and bounded wait queue.
+ * Waiting requests are queued per client and admitted round-robin across
+ * clients, so one busy caller cannot starve the others. A request is
+ * rejected straight away when the queue is full, when its client already
+ * has too many requests waiting, or when the expected wait, from the recent
+ * service time, is longer than the lane's max-wait-ms; a request still
+ * waiting at that deadline is rejected too. The wait limit has to leave room
+ * for at least one request ahead to finish, so it is set per lane from the
+ * typical duration of a scaffold or spec request.
+ * <p>
+ * Only requests that hold an HTTP request open while they run are admitted
+ * here. Async jobs and bulk batches return at once and wait in their own
+ * bounded queues, which answer 503 and 429 when full.
+ */
+@Component
+public class AdmissionControl {
+
+	private static final double SERVICE_TIME_WEIGHT = 0.2;
+
+	@Value("${admission.enabled:true}")
+	private boolean enabled;
+
+	@Value("${admission.max-queued-per-client:4}")
+	private int maxQueuedPerClient;
+
+	private final Lane scaffold;
+
+	private final Lane spec;
+
+	private final MeterRegistry meterRegistry;
+
+	public AdmissionControl(MeterRegistry meterRegistry,
+			@Value("${admission.scaffold.max-concurrent:4}") int scaffoldConcurrency,
+			@Value("${admission.scaffold.queue-capacity:16}") int scaffoldQueueCapacity,
+			@Value("${admission.scaffold.max-wait-ms:300000}") long scaffoldMaxWaitMs,
+			@Value("${admission.spec.max-concurrent:8}") int specConcurrency,
+			@Value("${admission.spec.queue-capacity:32}") int specQueueCapacity,
+			@Value("${admission.spec.max-wait-ms:120000}") long specMaxWaitMs) {
+		this.meterRegistry = meterRegistry;
+		this.scaffold = new Lane("scaffold", scaffoldConcurrency, scaffoldQueueCapacity, scaffoldMaxWaitMs);
+		this.spec = new Lane("spec", specConcurrency, specQueueCapacity, specMaxWaitMs);
+	}
+
+	/**
+	 * Held while an admitted request runs; closing it admits the next one.
+	 * It may be closed more than once, from any thread.
+	 */
+	public final class Permit implements AutoCloseable {
+
+		private final Lane lane;
+
+		private final long start = System.nanoTime();
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private Permit(Lane lane) {
+			this.lane = lane;
+		}
+
+		@Override
+		public void close() {
+			if (lane != null && closed.compareAndSet(false, true)) {
+				lane.release(System.nanoTime() - start);
+			}
+		}
+	}
+
+	private static final class Waiter {
+		private final String client;
+		private final Condition admitted;
+		private boolean granted;
+
+		private Waiter(String client, Condition admitted) {
+			this.client = client;
+			this.admitted = admitted;
+		}
+	}
+
+	private final class Lane {
+
+		private final String agent;
+
+		private final int limit;
+
+		private final int capacity;
+
+		private final long maxWaitNanos;
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Map<String, ArrayDeque<Waiter>> waiting = new HashMap<>();
+
+		// clients with waiting requests, in the order they are served
+		private final ArrayDeque<String> turns = new ArrayDeque<>();
+
+		private final Timer waitTimer;
+
+		private volatile int inFlight;
+
+		private volatile int queued;
+
+		private double serviceNanos;
+
+		private Lane(String agent, int limit, int capacity, long maxWaitMs) {
+			this.agent = agent;
+			this.limit = Math.max(1, limit);
+			this.capacity = Math.max(0, capacity);
+			this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+			this.waitTimer = Timer.builder("admission.wait").tag("agent", agent)
+					.description("Time requests waited for admission").publishPercentiles(0.5, 0.95, 0.99)
+					.register(meterRegistry);
+			Gauge.builder("admission.queue.depth", this, lane -> lane.queued).tag("agent", agent)
+					.description("Requests waiting for admission").register(meterRegistry);
+			Gauge.builder("admission.inflight", this, lane -> lane.inFlight).tag("agent", agent)
+					.description("Admitted requests still running").register(meterRegistry);
+		}
+
+		private Permit acquire(String client) throws InterruptedException {
+			long start = System.nanoTime();
+			lock.lock();
+			try {
+				if (inFlight < limit && queued == 0) {
+					inFlight++;
+					waitTimer.record(0, TimeUnit.NANOSECONDS);
+					return new Permit(this);
+				}
+				if (queued >= capacity) {
+					throw reject("queue-full", estimatedWaitNanos(queued + 1));
+				}
+				ArrayDeque<Waiter> mine = waiting.get(client);
+				if (mine != null && mine.size() >= maxQueuedPerClient) {
+					throw reject("client-limit", estimatedWaitNanos(queued + 1));
+				}
+				long estimate = estimatedWaitNanos(queued + 1);
+				if (estimate > maxWaitNanos) {
+					throw reject("deadline", estimate);
+				}
+				Waiter waiter = enqueue(client);
+				long remaining = maxWaitNanos;
+				try {
+					while (!waiter.granted) {
+						if (remaining <= 0) {
+							remove(waiter);
+							throw reject("timeout", estimatedWaitNanos(queued + 1));
+						}
+						remaining = waiter.admitted.awaitNanos(remaining);
+					}
+				} catch (InterruptedException e) {
+					if (waiter.granted) {
+						handOff();
+					} else {
+						remove(waiter);
+					}
+					throw e;
+				}
+				waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				return new Permit(this);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void release(long elapsedNanos) {
+			lock.lock();
+			try {
+				serviceNanos = serviceNanos == 0 ? elapsedNanos
+						: serviceNanos + SERVICE_TIME_WEIGHT * (elapsedNanos - serviceNanos);
+				handOff();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Pass a freed slot to the next client in turn, keeping it counted as
+		 * in flight, or give it back when nobody is waiting.
+		 */
+		private void handOff() {
+			String client = turns.poll();
+			if (client == null) {
+				inFlight--;
+				return;
+			}
+			ArrayDeque<Waiter> queue = waiting.get(client);
+			Waiter next = queue.poll();
+			queued--;
+			if (queue.isEmpty()) {
+				waiting.remove(client);
+			} else {
+				turns.add(client);
+			}
+			next.granted = true;
+			next.admitted.signal();
+		}
+
+		private Waiter enqueue(String client) {
+			Waiter waiter = new Waiter(client, lock.newCondition());
+			ArrayDeque<Waiter> queue = waiting.computeIfAbsent(client, key -> new ArrayDeque<>());
+			if (queue.isEmpty()) {
+				turns.add(client);
+			}
+			queue.add(waiter);
+			queued++;
+			return waiter;
+		}
+
+		private void remove(Waiter waiter) {
+			ArrayDeque<Waiter> queue = waiting.get(waiter.client);
+			queue.remove(waiter);
+			queued--;
+			if (queue.isEmpty()) {
+				waiting.remove(waiter.client);
+				turns.remove(waiter.client);
+			}
+		}
+
+		/**
+		 * Expected wait of the request at position in the queue: every limit
+		 * positions take one average service time. Zero until a request has
+		 * completed.
+		 */
+		private long estimatedWaitNanos(int position) {
+			return (long) (serviceNanos * ((position + limit - 1) / limit));
+		}
+
+		private AdmissionRejectedException reject(String reason, long retryAfterNanos) {
+			Counter.builder("admission.rejected").tag("agent", agent).tag("reason", reason)
+					.description("Requests turned away by admission control").register(meterRegistry).increment();
+			long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999L));
+			return new AdmissionRejectedException(agent + " requests are over capacity (" + reason + ")", retryAfter);
+		}
+	}
+
+	/**
+	 * Wait for a slot in the agent's lane. Throws
+	 * {@link AdmissionRejectedException} when the request is not admitted
+	 * within the deadline.
+	 */
+	public Permit acquire(String agent, String client) throws InterruptedException {
+		if (!enabled) {
+			return new Permit(null);
+		}
+		return (GeminiApiService.normalizeAgent(agent).equals(GeminiApiService.SCAFFOLD) ? scaffold : spec)
+				.acquire(client);
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.WebVipers.gemini.service;
+
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * A request turned away by {@link AdmissionControl} or a full bulk queue,
+ * with the number of seconds after which a retry is likely to be admitted.
+ */
+public class AdmissionRejectedException extends TaskRejectedException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterSeconds;
+
+	public AdmissionRejectedException(String message, long retryAfterSeconds) {
+		super(message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+}
@@ -0,0 +1,208 @@
+package com.WebVipers.gemini.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes generated files straight into a zip or tar.gz stream, one entry at
+ * a time, so a scaffold can be handed back without touching the disk. Each
+ * entry is flushed as soon as it is complete; only the file being written is
+ * held in memory. An entry cannot be replaced once it has been sent, so a
+ * second file with the same path is skipped and the first one kept.
+ */
+public abstract class ArchiveWriter implements Closeable {
+
+	public enum Format {
+		ZIP("zip", "application/zip"), TAR_GZ("tar.gz", "application/gzip");
+
+		private final String extension;
+
+		private final String mediaType;
+
+		Format(String extension, String mediaType) {
+			this.extension = extension;
+			this.mediaType = mediaType;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		public String getMediaType() {
+			return mediaType;
+		}
+
+		public static Optional<Format> of(String value) {
+			String extension = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+			return Arrays.stream(values())
+					.filter(format -> format.extension.equals(extension) || extension.equals("tgz") && format == TAR_GZ)
+					.findFirst();
+		}
+	}
+
+	protected final OutputStream out;
+
+	private final Set<String> names = new HashSet<>();
+
+	protected ArchiveWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	public static ArchiveWriter open(Format format, OutputStream out) throws IOException {
+		return format == Format.ZIP ? new Zip(out) : new TarGz(out);
+	}
+
+	/**
+	 * Add a file below directory, which uses the scaffold's "/"-terminated
+	 * form. Entries that would land outside the archive root are rejected.
+	 * Returns false, writing nothing, when the archive already has the path.
+	 */
+	public boolean write(String directory, String fileName, CharSequence content) throws IOException {
+		String name = (directory.replace('\\', '/') + fileName).replaceAll("^/+", "");
+		for (String segment : name.split("/")) {
+			if (segment.equals("..")) {
+				throw new IOException("Generated file escapes the project root: " + name);
+			}
+		}
+		if (!names.add(name)) {
+			return false;
+		}
+		ByteBuffer encoded = StandardCharsets.UTF_8
+				.encode(content instanceof CharBuffer view ? view.duplicate() : CharBuffer.wrap(content));
+		byte[] bytes = new byte[encoded.remaining()];
+		encoded.get(bytes);
+		writeEntry(name, bytes);
+		out.flush();
+		return true;
+	}
+
+	public int getEntryCount() {
+		return names.size();
+	}
+
+	protected abstract void writeEntry(String name, byte[] content) throws IOException;
+
+	private static final class Zip extends ArchiveWriter {
+
+		private final ZipOutputStream zip;
+
+		private Zip(OutputStream out) {
+			this(new ZipOutputStream(out));
+		}
+
+		private Zip(ZipOutputStream zip) {
+			super(zip);
+			this.zip = zip;
+		}
+
+		@Override
+		protected void writeEntry(String name, byte[] content) throws IOException {
+			zip.putNextEntry(new ZipEntry(name));
+			zip.write(content);
+			zip.closeEntry();
+		}
+
+		@Override
+		public void close() throws IOException {
+			zip.finish();
+			zip.flush();
+		}
+	}
+
+	/**
+	 * POSIX ustar entries; names that do not fit the header get a pax
+	 * extended header first.
+	 */
+	private static final class TarGz extends ArchiveWriter {
+
+		private static final int BLOCK = 512;
+
+		private final GZIPOutputStream gzip;
+
+		private TarGz(OutputStream out) throws IOException {
+			this(new GZIPOutputStream(out, 64 * 1024, true));
+		}
+
+		private TarGz(GZIPOutputStream gzip) {
+			super(gzip);
+			this.gzip = gzip;
+		}
+
+		@Override
+		protected void writeEntry(String name, byte[] content) throws IOException {
+			byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+			if (nameBytes.length > 100) {
+				String record = " path=" + name + "\n";
+				int length = record.getBytes(StandardCharsets.UTF_8).length;
+				// the length prefix counts its own digits
+				int total = length + Integer.toString(length).length();
+				total = length + Integer.toString(total).length();
+				byte[] pax = (total + record).getBytes(StandardCharsets.UTF_8);
+				writeHeader("PaxHeader", pax.length, 'x');
+				writeData(pax);
+				nameBytes = Arrays.copyOfRange(nameBytes, nameBytes.length - 100, nameBytes.length);
+			}
+			writeHeader(new String(nameBytes, StandardCharsets.UTF_8), content.length, '0');
+			writeData(content);
+		}
+
+		private void writeHeader(String name, long size, char type) throws IOException {
+			byte[] header = new byte[BLOCK];
+			put(header, 0, 100, name.getBytes(StandardCharsets.UTF_8));
+			put(header, 100, 8, octal(0644, 7));
+			put(header, 108, 8, octal(0, 7));
+			put(header, 116, 8, octal(0, 7));
+			put(header, 124, 12, octal(size, 11));
+			put(header, 136, 12, octal(System.currentTimeMillis() / 1000, 11));
+			Arrays.fill(header, 148, 156, (byte) ' ');
+			header[156] = (byte) type;
+			put(header, 257, 6, "ustar\0".getBytes(StandardCharsets.US_ASCII));
+			put(header, 263, 2, "00".getBytes(StandardCharsets.US_ASCII));
+			long checksum = 0;
+			for (byte b : header) {
+				checksum += b & 0xff;
+			}
+			put(header, 148, 8, octal(checksum, 6));
+			header[155] = ' ';
+			gzip.write(header);
+		}
+
+		private void writeData(byte[] data) throws IOException {
+			gzip.write(data);
+			int padding = (BLOCK - data.length % BLOCK) % BLOCK;
+			if (padding > 0) {
+				gzip.write(new byte[padding]);
+			}
+		}
+
+		private static byte[] octal(long value, int digits) {
+			String text = String.format("%0" + digits + "o", value);
+			return (text + "\0").getBytes(StandardCharsets.US_ASCII);
+		}
+
+		private static void put(byte[] header, int offset, int length, byte[] value) {
+			System.arraycopy(value, 0, header, offset, Math.min(length, value.length));
+		}
+
+		@Override
+		public void close() throws IOException {
+			// end of archive: two empty blocks
+			gzip.write(new byte[2 * BLOCK]);
+			gzip.finish();
+			gzip.flush();
+		}
+	}
+
+}
@@ -0,0 +1,431 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.WebVipers.gemini.model.ArtifactFile;
+import com.WebVipers.gemini.model.ArtifactGeneration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Local history of every generation. File contents are stored once as
+ * gzip-compressed blobs named by their SHA-256, so files that do not change
+ * between generations share a blob; each generation is one line in an
+ * append-only index that is loaded into memory at startup. Past generations
+ * can be listed and streamed back without touching git or the model.
+ * <p>
+ * A request only links its files into a snapshot; hashing and compression
+ * run on a single background thread with a bounded queue, and a generation
+ * is skipped when that queue is full. A periodic sweep drops generations
+ * past their age or count limit, then the oldest ones until the blobs fit
+ * in their size limit, and deletes the blobs no generation uses any more.
+ */
+@Service
+public class ArtifactStore implements InitializingBean, DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(ArtifactStore.class);
+
+	private static final String INDEX_FILE = "index.jsonl";
+
+	private static final String PENDING_DIRECTORY = "pending";
+
+	@Value("${artifacts.enabled:true}")
+	private boolean enabled;
+
+	@Value("${artifacts.directory:gemini-artifacts}")
+	private String directory;
+
+	@Value("${artifacts.max-age-ms:2592000000}")
+	private long maxAgeMs;
+
+	@Value("${artifacts.max-generations:5000}")
+	private int maxGenerations;
+
+	@Value("${artifacts.max-bytes:1073741824}")
+	private long maxBytes;
+
+	private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+	private final Map<String, ArtifactGeneration> generations = new ConcurrentHashMap<>();
+
+	// held while a generation is stored and while the store is swept, so a sweep never sees half a generation
+	private final ReentrantLock storeLock = new ReentrantLock();
+
+	private final ExecutorService recorder;
+
+	private final Counter blobsWritten;
+
+	private final Counter blobsShared;
+
+	private final Counter generationsSkipped;
+
+	private final Counter generationsEvicted;
+
+	public ArtifactStore(MeterRegistry meterRegistry,
+			@Value("${artifacts.queue-capacity:64}") int queueCapacity) {
+		this.recorder = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "artifact-recorder");
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.blobsWritten = Counter.builder("artifacts.blobs.written").description("New blobs added to the store")
+				.register(meterRegistry);
+		this.blobsShared = Counter.builder("artifacts.blobs.shared")
+				.description("Stored files whose content was already in the store").register(meterRegistry);
+		this.generationsSkipped = Counter.builder("artifacts.generations.skipped")
+				.description("Generations not stored because the recording queue was full").register(meterRegistry);
+		this.generationsEvicted = Counter.builder("artifacts.generations.evicted")
+				.description("Generations removed by the retention sweep").register(meterRegistry);
+		Gauge.builder("artifacts.generations", generations, Map::size).description("Generations in the store")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void afterPropertiesSet() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		// snapshots left by a shutdown before they were stored
+		deleteSnapshot(Path.of(directory, PENDING_DIRECTORY));
+		Path index = Path.of(directory, INDEX_FILE);
+		if (!Files.exists(index)) {
+			return;
+		}
+		try (Stream<String> lines = Files.lines(index, StandardCharsets.UTF_8)) {
+			lines.filter(line -> !line.isBlank()).forEach(line -> {
+				try {
+					ArtifactGeneration generation = objectMapper.readValue(line, ArtifactGeneration.class);
+					generations.put(generation.getId(), generation);
+				} catch (IOException e) {
+					// a line cut short by a crash while appending
+					logger.warn("Skipping unreadable artifact index entry: {}", e.getMessage());
+				}
+			});
+		}
+		logger.info("Loaded {} generations from artifact store {}", generations.size(), directory);
+	}
+
+	/**
+	 * Store every file below root as a new generation. The files are linked
+	 * (or, across file systems, copied) into a snapshot before this returns,
+	 * so root can be moved or deleted right away; they are hashed and
+	 * compressed in the background. Failures are logged and never fail the
+	 * request that produced the files.
+	 */
+	public CompletableFuture<Optional<ArtifactGeneration>> record(String agent, String prompt, Path root) {
+		if (!enabled) {
+			return CompletableFuture.completedFuture(Optional.empty());
+		}
+		ArtifactGeneration generation = new ArtifactGeneration();
+		generation.setId(UUID.randomUUID().toString());
+		generation.setAgent(agent);
+		generation.setPrompt(prompt);
+		generation.setCreatedAt(Instant.now());
+		Path snapshot = Path.of(directory, PENDING_DIRECTORY, generation.getId());
+		try {
+			snapshot(root, snapshot);
+			return CompletableFuture.supplyAsync(() -> store(generation, snapshot), recorder);
+		} catch (IOException e) {
+			logger.warn("Failed to snapshot {} generation for the artifact store: {}", agent, e.getMessage());
+		} catch (RejectedExecutionException e) {
+			generationsSkipped.increment();
+			logger.warn("Artifact store is busy, not storing {} generation {}", agent, generation.getId());
+		}
+		deleteSnapshot(snapshot);
+		return CompletableFuture.completedFuture(Optional.empty());
+	}
+
+	private static void snapshot(Path root, Path snapshot) throws IOException {
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(root)) {
+			files = walk.filter(Files::isRegularFile).toList();
+		}
+		Files.createDirectories(snapshot);
+		for (Path file : files) {
+			Path link = snapshot.resolve(root.relativize(file).toString());
+			Files.createDirectories(link.getParent());
+			try {
+				// staged files are only ever moved, never rewritten, so a link is a stable copy
+				Files.createLink(link, file);
+			} catch (FileSystemException | UnsupportedOperationException e) {
+				Files.copy(file, link);
+			}
+		}
+	}
+
+	private Optional<ArtifactGeneration> store(ArtifactGeneration generation, Path snapshot) {
+		storeLock.lock();
+		try {
+			List<Path> files;
+			try (Stream<Path> walk = Files.walk(snapshot)) {
+				files = walk.filter(Files::isRegularFile).sorted().toList();
+			}
+			for (Path file : files) {
+				String path = snapshot.relativize(file).toString().replace('\\', '/');
+				generation.getFiles().add(new ArtifactFile(path, storeBlob(file), Files.size(file)));
+			}
+			appendToIndex(generation);
+			generations.put(generation.getId(), generation);
+			return Optional.of(generation);
+		} catch (IOException e) {
+			logger.warn("Failed to store {} generation in the artifact store: {}", generation.getAgent(),
+					e.getMessage());
+			return Optional.empty();
+		} finally {
+			storeLock.unlock();
+			deleteSnapshot(snapshot);
+		}
+	}
+
+	private static void deleteSnapshot(Path snapshot) {
+		if (!Files.exists(snapshot)) {
+			return;
+		}
+		try {
+			IncrementalDirectorySync.deleteTree(snapshot);
+		} catch (IOException e) {
+			logger.warn("Failed to delete artifact snapshot {}: {}", snapshot, e.getMessage());
+		}
+	}
+
+	public Optional<ArtifactGeneration> get(String id) {
+		return Optional.ofNullable(generations.get(id));
+	}
+
+	/**
+	 * Generations matching the filters, newest first. Null filters match
+	 * everything; prompt matches case-insensitively anywhere in the prompt.
+	 */
+	public List<ArtifactGeneration> find(String agent, String prompt, Instant since, Instant until, int limit) {
+		String promptFilter = prompt == null ? null : prompt.toLowerCase(Locale.ROOT);
+		return generations.values().stream()
+				.filter(generation -> agent == null || generation.getAgent().equalsIgnoreCase(agent))
+				.filter(generation -> promptFilter == null
+						|| generation.getPrompt().toLowerCase(Locale.ROOT).contains(promptFilter))
+				.filter(generation -> since == null || !generation.getCreatedAt().isBefore(since))
+				.filter(generation -> until == null || generation.getCreatedAt().isBefore(until))
+				.sorted(Comparator.comparing(ArtifactGeneration::getCreatedAt).reversed())
+				.limit(limit)
+				.toList();
+	}
+
+	/**
+	 * Write a generation as a zip archive, one blob at a time.
+	 */
+	public void writeZip(ArtifactGeneration generation, OutputStream outputStream) throws IOException {
+		ZipOutputStream zip = new ZipOutputStream(outputStream);
+		for (ArtifactFile file : generation.getFiles()) {
+			zip.putNextEntry(new ZipEntry(file.getPath()));
+			try (InputStream blob = new GZIPInputStream(Files.newInputStream(blobPath(file.getBlob())))) {
+				blob.transferTo(zip);
+			}
+			zip.closeEntry();
+		}
+		zip.finish();
+		zip.flush();
+	}
+
+	/**
+	 * Hash the file, then compress it into the store unless a blob with the
+	 * same content is already there.
+	 */
+	private String storeBlob(Path file) throws IOException {
+		String hash = sha256(file);
+		Path blob = blobPath(hash);
+		if (Files.exists(blob)) {
+			blobsShared.increment();
+			return hash;
+		}
+		Files.createDirectories(blob.getParent());
+		Path temp = Files.createTempFile(blob.getParent(), hash, ".tmp");
+		try {
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+				Files.copy(file, out);
+			}
+			try {
+				Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, blob);
+			}
+			blobsWritten.increment();
+		} catch (FileAlreadyExistsException e) {
+			// stored concurrently by another generation with the same file
+			blobsShared.increment();
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return hash;
+	}
+
+	private void appendToIndex(ArtifactGeneration generation) throws IOException {
+		byte[] line = (objectMapper.writeValueAsString(generation) + "\n").getBytes(StandardCharsets.UTF_8);
+		Files.createDirectories(Path.of(directory));
+		Files.write(Path.of(directory, INDEX_FILE), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Drop generations older than the maximum age or beyond the maximum
+	 * count, then the oldest ones until the blobs they use fit in the size
+	 * limit. The index is rewritten without them and blobs no longer used by
+	 * any generation are deleted, along with temp files left by a crash.
+	 */
+	@Scheduled(fixedDelayString = "${artifacts.sweep-interval-ms:600000}")
+	public void sweep() {
+		if (!enabled || !Files.isDirectory(Path.of(directory))) {
+			return;
+		}
+		storeLock.lock();
+		try {
+			Map<String, Long> blobSizes = new HashMap<>();
+			Path blobs = Path.of(directory, "blobs");
+			if (Files.isDirectory(blobs)) {
+				try (Stream<Path> walk = Files.walk(blobs)) {
+					for (Path blob : walk.filter(Files::isRegularFile).toList()) {
+						String name = blob.getFileName().toString();
+						if (name.endsWith(".gz")) {
+							blobSizes.put(blob.getParent().getFileName() + name.substring(0, name.length() - 3),
+									Files.size(blob));
+						} else {
+							Files.deleteIfExists(blob);
+						}
+					}
+				}
+			}
+
+			List<ArtifactGeneration> oldestFirst = generations.values().stream()
+					.sorted(Comparator.comparing(ArtifactGeneration::getCreatedAt)).toList();
+			Map<String, Integer> references = new HashMap<>();
+			for (ArtifactGeneration generation : oldestFirst) {
+				generation.getFiles().forEach(file -> references.merge(file.getBlob(), 1, Integer::sum));
+			}
+			long total = references.keySet().stream().mapToLong(hash -> blobSizes.getOrDefault(hash, 0L)).sum();
+			Instant expiry = Instant.now().minusMillis(maxAgeMs);
+			int remaining = oldestFirst.size();
+			List<ArtifactGeneration> evicted = new ArrayList<>();
+			for (ArtifactGeneration generation : oldestFirst) {
+				if (!generation.getCreatedAt().isBefore(expiry) && remaining <= maxGenerations && total <= maxBytes) {
+					break;
+				}
+				for (ArtifactFile file : generation.getFiles()) {
+					if (references.merge(file.getBlob(), -1, Integer::sum) == 0) {
+						references.remove(file.getBlob());
+						total -= blobSizes.getOrDefault(file.getBlob(), 0L);
+					}
+				}
+				evicted.add(generation);
+				remaining--;
+			}
+
+			if (!evicted.isEmpty()) {
+				evicted.forEach(generation -> generations.remove(generation.getId()));
+				rewriteIndex();
+				generationsEvicted.increment(evicted.size());
+			}
+			for (String hash : blobSizes.keySet()) {
+				if (!references.containsKey(hash)) {
+					Files.deleteIfExists(blobPath(hash));
+				}
+			}
+			if (!evicted.isEmpty()) {
+				logger.info("Removed {} generations from artifact store {}, {} left using {} bytes", evicted.size(),
+						directory, remaining, total);
+			}
+		} catch (IOException e) {
+			logger.warn("Failed to sweep artifact store {}: {}", directory, e.getMessage());
+		} finally {
+			storeLock.unlock();
+		}
+	}
+
+	private void rewriteIndex() throws IOException {
+		Path index = Path.of(directory, INDEX_FILE);
+		Path temp = Files.createTempFile(Path.of(directory), INDEX_FILE, ".tmp");
+		try {
+			List<ArtifactGeneration> oldestFirst = generations.values().stream()
+					.sorted(Comparator.comparing(ArtifactGeneration::getCreatedAt)).toList();
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				for (ArtifactGeneration generation : oldestFirst) {
+					out.write((objectMapper.writeValueAsString(generation) + "\n").getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			try {
+				Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private Path blobPath(String hash) {
+		return Path.of(directory, "blobs", hash.substring(0, 2), hash.substring(2) + ".gz");
+	}
+
+	private static String sha256(Path file) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+				in.transferTo(OutputStream.nullOutputStream());
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		recorder.shutdown();
+	}
+
+}
@@ -0,0 +1,314 @@
+package com.WebVipers.gemini.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.WebVipers.gemini.model.LlmAttachment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Turns files uploaded with a request into model attachments. Small files
+ * are sent inline; larger ones, and everything once a request's inline share
+ * is used up, are streamed from the multipart temp file into the backend's
+ * file store, so they are never held in the heap. Zip archives of existing
+ * code are unpacked into a single text document first.
+ *
+ * Uploads held by running requests are bounded by uploads.max-in-flight-bytes:
+ * a request waits up to uploads.acquire-timeout-ms for room and is rejected
+ * after that.
+ */
+@Service
+public class AttachmentService {
+
+	private static final Logger logger = LoggerFactory.getLogger(AttachmentService.class);
+
+	private static final Set<String> ARCHIVE_TYPES = Set.of("application/zip", "application/x-zip-compressed");
+
+	private static final int BINARY_SNIFF_BYTES = 8192;
+
+	@Value("${uploads.max-files:10}")
+	private int maxFiles;
+
+	@Value("${uploads.max-file-bytes:104857600}")
+	private long maxFileBytes;
+
+	@Value("${uploads.max-request-bytes:209715200}")
+	private long maxRequestBytes;
+
+	@Value("${uploads.inline-threshold-bytes:1048576}")
+	private long inlineThresholdBytes;
+
+	@Value("${uploads.max-inline-request-bytes:16777216}")
+	private long maxInlineRequestBytes;
+
+	@Value("${uploads.acquire-timeout-ms:10000}")
+	private long acquireTimeoutMs;
+
+	@Autowired
+	private LlmService llmService;
+
+	// one permit per KiB so the budget can exceed 2 GiB
+	private final int budgetKib;
+
+	private final Semaphore budget;
+
+	private final Counter inlined;
+
+	private final Counter uploaded;
+
+	private final Counter rejected;
+
+	public AttachmentService(MeterRegistry meterRegistry,
+			@Value("${uploads.max-in-flight-bytes:536870912}") long maxInFlightBytes) {
+		this.budgetKib = kib(maxInFlightBytes);
+		this.budget = new Semaphore(budgetKib, true);
+		this.inlined = Counter.builder("uploads.files").tag("mode", "inline")
+				.description("Uploaded files sent to the model").register(meterRegistry);
+		this.uploaded = Counter.builder("uploads.files").tag("mode", "file-api")
+				.description("Uploaded files sent to the model").register(meterRegistry);
+		this.rejected = Counter.builder("uploads.rejected")
+				.description("Requests rejected because the upload budget was exhausted").register(meterRegistry);
+		Gauge.builder("uploads.inflight.bytes", budget, permits -> (budgetKib - permits.availablePermits()) * 1024.0)
+				.description("Upload bytes held by running requests").register(meterRegistry);
+	}
+
+	/**
+	 * The attachments of one request. Closing it deletes uploaded files and
+	 * temp files and returns the request's share of the upload budget.
+	 */
+	public final class Attachments implements AutoCloseable {
+
+		private final List<LlmAttachment> attachments = new ArrayList<>();
+
+		private final List<Path> tempFiles = new ArrayList<>();
+
+		private final int permits;
+
+		private long inlineBytes;
+
+		private Attachments(int permits) {
+			this.permits = permits;
+		}
+
+		public List<LlmAttachment> get() {
+			return attachments;
+		}
+
+		@Override
+		public void close() {
+			for (LlmAttachment attachment : attachments) {
+				if (attachment.isUploaded()) {
+					try {
+						llmService.deleteUpload(attachment);
+					} catch (Exception e) {
+						// uploads expire on their own; a failed delete only keeps it around longer
+						logger.warn("Failed to delete uploaded file {}: {}", attachment.getFileName(), e.getMessage());
+					}
+				}
+			}
+			for (Path tempFile : tempFiles) {
+				try {
+					Files.deleteIfExists(tempFile);
+				} catch (IOException e) {
+					logger.warn("Failed to delete {}: {}", tempFile, e.getMessage());
+				}
+			}
+			budget.release(permits);
+		}
+	}
+
+	/**
+	 * Check the files against the per-request limits, wait for room in the
+	 * upload budget, then inline or upload each of them. Empty parts are
+	 * ignored.
+	 */
+	public Attachments prepare(List<MultipartFile> files) throws Exception {
+		List<MultipartFile> parts = files == null ? List.of() : files.stream().filter(file -> !file.isEmpty()).toList();
+		if (parts.size() > maxFiles) {
+			throw new IllegalArgumentException("At most " + maxFiles + " files can be uploaded with a request");
+		}
+		long total = 0;
+		for (MultipartFile part : parts) {
+			if (part.getSize() > maxFileBytes) {
+				throw new MaxUploadSizeExceededException(maxFileBytes);
+			}
+			total += part.getSize();
+		}
+		if (total > maxRequestBytes) {
+			throw new MaxUploadSizeExceededException(maxRequestBytes);
+		}
+		int permits = Math.min(kib(total), budgetKib);
+		if (!budget.tryAcquire(permits, acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+			rejected.increment();
+			throw new TaskRejectedException("Upload capacity exhausted, retry later");
+		}
+		Attachments attachments = new Attachments(permits);
+		try {
+			for (MultipartFile part : parts) {
+				attachments.attachments.add(attach(attachments, part));
+			}
+			return attachments;
+		} catch (Exception e) {
+			attachments.close();
+			throw e;
+		}
+	}
+
+	private LlmAttachment attach(Attachments attachments, MultipartFile part) throws Exception {
+		String name = StringUtils.hasText(part.getOriginalFilename())
+				? StringUtils.getFilename(StringUtils.cleanPath(part.getOriginalFilename()))
+				: part.getName();
+		if (!isArchive(part)) {
+			return attach(attachments, part, part.getSize(), mimeTypeOf(part.getContentType()), name);
+		}
+		Path text = Files.createTempFile("upload-", ".txt");
+		attachments.tempFiles.add(text);
+		long size = unpack(part, text);
+		return attach(attachments, new FileSystemResource(text), size, "text/plain", name + ".txt");
+	}
+
+	/**
+	 * Inline the content when it is small and the request's inline share has
+	 * room, otherwise stream it into the backend's file store, hashing it on
+	 * the way.
+	 */
+	private LlmAttachment attach(Attachments attachments, InputStreamSource source, long size, String mimeType,
+			String name) throws Exception {
+		if (size <= inlineThresholdBytes && attachments.inlineBytes + size <= maxInlineRequestBytes) {
+			LlmAttachment attachment = new LlmAttachment();
+			try (InputStream in = source.getInputStream()) {
+				attachment.setData(in.readAllBytes());
+			}
+			attachment.setDisplayName(name);
+			attachment.setMimeType(mimeType);
+			attachment.setSize(size);
+			attachment.setDigest(HexFormat.of().formatHex(sha256().digest(attachment.getData())));
+			attachments.inlineBytes += size;
+			inlined.increment();
+			return attachment;
+		}
+		if (!llmService.supportsFileUpload()) {
+			throw new AttachmentTooLargeException(name + " (" + size + " bytes) cannot be sent inline, which allows "
+					+ inlineThresholdBytes + " bytes per file and " + maxInlineRequestBytes
+					+ " bytes per request, and the model backend does not accept file uploads");
+		}
+		MessageDigest digest = sha256();
+		LlmAttachment attachment = llmService.upload(new DigestInputStream(source.getInputStream(), digest), size,
+				mimeType, name);
+		attachment.setDigest(HexFormat.of().formatHex(digest.digest()));
+		uploaded.increment();
+		logger.info("Uploaded {} ({} bytes) to the model's file store", name, size);
+		return attachment;
+	}
+
+	/**
+	 * Write the text files of a zip archive into one document, each behind a
+	 * header naming its path. Binary entries are skipped.
+	 */
+	private long unpack(InputStreamSource archive, Path target) throws IOException {
+		long written = 0;
+		byte[] buffer = new byte[BINARY_SNIFF_BYTES];
+		try (ZipInputStream zip = new ZipInputStream(archive.getInputStream());
+				OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				int length = zip.readNBytes(buffer, 0, buffer.length);
+				if (isBinary(buffer, length)) {
+					continue;
+				}
+				byte[] header = ("===== " + entry.getName() + " =====\n").getBytes(StandardCharsets.UTF_8);
+				do {
+					written += length;
+					if (written > maxFileBytes) {
+						throw new MaxUploadSizeExceededException(maxFileBytes);
+					}
+					if (header != null) {
+						out.write(header);
+						written += header.length;
+						header = null;
+					}
+					out.write(buffer, 0, length);
+				} while ((length = zip.read(buffer)) > 0);
+				out.write('\n');
+				written++;
+			}
+		}
+		return written;
+	}
+
+	private static boolean isBinary(byte[] head, int length) {
+		for (int i = 0; i < length; i++) {
+			if (head[i] == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isArchive(MultipartFile part) {
+		String contentType = part.getContentType() == null ? "" : part.getContentType().toLowerCase(Locale.ROOT);
+		String name = part.getOriginalFilename() == null ? "" : part.getOriginalFilename().toLowerCase(Locale.ROOT);
+		return ARCHIVE_TYPES.contains(contentType) || name.endsWith(".zip");
+	}
+
+	/**
+	 * Images, audio, video and PDFs keep their type; specs, source files and
+	 * anything else are sent as plain text.
+	 */
+	private static String mimeTypeOf(String contentType) {
+		String type = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+		if (type.startsWith("image/") || type.startsWith("audio/") || type.startsWith("video/")
+				|| type.equals("application/pdf")) {
+			return type;
+		}
+		return "text/plain";
+	}
+
+	private static int kib(long bytes) {
+		return (int) Math.min(Integer.MAX_VALUE, (bytes + 1023) / 1024);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.WebVipers.gemini.service;
+
+import org.springframework.web.multipart.MultipartException;
+
+/**
+ * An uploaded file that is too large to send inline to a model backend that
+ * cannot take file uploads. Answered with 413 like the other upload limits.
+ */
+public class AttachmentTooLargeException extends MultipartException {
+
+	private static final long serialVersionUID = 1L;
+
+	public AttachmentTooLargeException(String message) {
+		super(message);
+	}
+
+}
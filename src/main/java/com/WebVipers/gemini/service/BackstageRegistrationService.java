@@ -0,0 +1,171 @@
+package com.WebVipers.gemini.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import com.WebVipers.gemini.model.BackStageResponseDTO;
+import com.WebVipers.gemini.model.BackstageRequestDTO;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Registers catalog locations with Backstage in the background. Requests
+ * that arrive within the batch window are grouped, identical locations are
+ * sent once, and at most max-in-flight calls are outstanding at a time. The
+ * caller gets a future with the outcome instead of waiting for Backstage.
+ * Should the pipeline itself fail, the registrations it had taken are failed
+ * and a new pipeline picks up the rest of the queue.
+ */
+@Service
+public class BackstageRegistrationService implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(BackstageRegistrationService.class);
+
+	private record Pending(String url, BackstageRequestDTO request, CompletableFuture<BackStageResponseDTO> outcome) {
+	}
+
+	private final WebClientService webClientService;
+
+	// not cancelled when its subscriber goes away, so a failed pipeline can be replaced
+	private final Sinks.Many<Pending> queue = Sinks.many().multicast().onBackpressureBuffer(Integer.MAX_VALUE, false);
+
+	// registrations taken off the queue by the running pipeline and not answered yet
+	private final Set<Pending> taken = ConcurrentHashMap.newKeySet();
+
+	// registrations whose caller is still waiting, failed on shutdown
+	private final Set<Pending> outstanding = ConcurrentHashMap.newKeySet();
+
+	private final int maxBatch;
+
+	private final long windowMs;
+
+	private final int maxInFlight;
+
+	private volatile Disposable subscription;
+
+	private volatile boolean stopped;
+
+	private final DistributionSummary batchSize;
+
+	private final MeterRegistry meterRegistry;
+
+	public BackstageRegistrationService(@Lazy WebClientService webClientService, MeterRegistry meterRegistry,
+			@Value("${backstage.batch.max-size:50}") int maxBatch,
+			@Value("${backstage.batch.window-ms:500}") long windowMs,
+			@Value("${backstage.max-in-flight:4}") int maxInFlight) {
+		this.webClientService = webClientService;
+		this.meterRegistry = meterRegistry;
+		this.maxBatch = maxBatch;
+		this.windowMs = windowMs;
+		this.maxInFlight = maxInFlight;
+		this.batchSize = DistributionSummary.builder("backstage.registration.batch.size")
+				.description("Registrations answered by a single batch").register(meterRegistry);
+		this.subscription = subscribe();
+	}
+
+	/**
+	 * Start the batching pipeline. With fair backpressure bufferTimeout only
+	 * takes what the registrations downstream can accept, instead of failing
+	 * with an overflow once max-in-flight calls are outstanding.
+	 */
+	private Disposable subscribe() {
+		return queue.asFlux()
+				.doOnNext(taken::add)
+				.bufferTimeout(maxBatch, Duration.ofMillis(windowMs), true)
+				.flatMapIterable(this::groupByLocation)
+				.flatMap(this::register, maxInFlight)
+				.subscribe(null, this::restart);
+	}
+
+	private void restart(Throwable error) {
+		logger.error("Backstage registration pipeline failed, restarting it", error);
+		List<Pending> lost = new ArrayList<>(taken);
+		taken.removeAll(lost);
+		lost.forEach(pending -> pending.outcome().completeExceptionally(error));
+		if (!stopped) {
+			subscription = subscribe();
+		}
+	}
+
+	/**
+	 * Queue a registration. The future completes once Backstage answered or
+	 * the retries are exhausted; it never blocks the caller.
+	 */
+	public CompletableFuture<BackStageResponseDTO> register(String url, BackstageRequestDTO request) {
+		CompletableFuture<BackStageResponseDTO> outcome = new CompletableFuture<>();
+		if (stopped) {
+			outcome.completeExceptionally(new IllegalStateException("Backstage registration is shutting down"));
+			return outcome;
+		}
+		Pending pending = new Pending(url, request, outcome);
+		outstanding.add(pending);
+		outcome.whenComplete((response, error) -> outstanding.remove(pending));
+		queue.emitNext(pending, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+		return outcome;
+	}
+
+	private Iterable<List<Pending>> groupByLocation(List<Pending> batch) {
+		batchSize.record(batch.size());
+		Map<String, List<Pending>> byLocation = new LinkedHashMap<>();
+		for (Pending pending : batch) {
+			String key = pending.url() + '\n' + pending.request().getType() + '\n' + pending.request().getTarget();
+			byLocation.computeIfAbsent(key, k -> new ArrayList<>()).add(pending);
+		}
+		return byLocation.values();
+	}
+
+	private Mono<Void> register(List<Pending> group) {
+		Pending first = group.get(0);
+		Timer.Sample sample = Timer.start(meterRegistry);
+		// deferred so a call that throws instead of returning an error fails only this group
+		return Mono.defer(() -> webClientService.callPostApiAsync(first.url(), first.request(),
+				BackStageResponseDTO.class))
+				.doOnSuccess(response -> {
+					sample.stop(timer("success"));
+					logger.info("Registered {} with Backstage for {} request(s)", first.request().getTarget(),
+							group.size());
+					group.forEach(pending -> pending.outcome().complete(response));
+				})
+				.doOnError(e -> {
+					sample.stop(timer("failure"));
+					logger.warn("Backstage registration of {} failed: {}", first.request().getTarget(), e.getMessage());
+					group.forEach(pending -> pending.outcome().completeExceptionally(e));
+				})
+				.onErrorResume(e -> Mono.empty())
+				.doFinally(signal -> group.forEach(taken::remove))
+				.then();
+	}
+
+	private Timer timer(String outcome) {
+		return Timer.builder("backstage.registration").tag("outcome", outcome)
+				.description("Backstage catalog registration including retries").register(meterRegistry);
+	}
+
+	@Override
+	public void destroy() {
+		stopped = true;
+		queue.tryEmitComplete();
+		subscription.dispose();
+		IllegalStateException shutdown = new IllegalStateException("Backstage registration stopped before it completed");
+		List.copyOf(outstanding).forEach(pending -> pending.outcome().completeExceptionally(shutdown));
+	}
+
+}
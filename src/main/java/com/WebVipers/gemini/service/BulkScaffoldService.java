@@ -0,0 +1,244 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.WebVipers.gemini.config.ExecutorConfig;
+import com.WebVipers.gemini.model.BulkItemResult;
+import com.WebVipers.gemini.model.BulkScaffoldItem;
+import com.WebVipers.gemini.model.BulkScaffoldRequest;
+import com.google.genai.errors.ApiException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Fans a list of prompts out over a shared worker pool. Model calls go
+ * through the {@link GeminiRateLimiter}, and the number of items running at
+ * once follows an {@link AdaptiveConcurrencyLimiter} that halves on 429s.
+ * Each item's result is sent to the caller as soon as it finishes. The pool
+ * holds at most maxConcurrency + queueCapacity items across all bulk
+ * requests; a request whose items do not fit is turned away as a whole, so
+ * one large batch cannot queue without limit in front of everyone else.
+ */
+@Service
+public class BulkScaffoldService implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkScaffoldService.class);
+
+	private static final int TOO_MANY_REQUESTS = 429;
+
+	// roughly how long a full queue takes to drain enough for another batch
+	private static final long RETRY_AFTER_SECONDS = 30;
+
+	@Value("${bulk.max-attempts:4}")
+	private int maxAttempts;
+
+	@Value("${bulk.backoff-ms:2000}")
+	private long backoffMs;
+
+	@Value("${bulk.max-items:100}")
+	private int maxItems;
+
+	@Value("${bulk.sse-timeout-ms:3600000}")
+	private long sseTimeoutMs;
+
+	@Autowired
+	private GeminiApiService geminiApiService;
+
+	private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+	private final ExecutorService executor;
+
+	// items running or queued, over all bulk requests
+	private final Semaphore capacity;
+
+	private final Counter throttled;
+
+	public BulkScaffoldService(MeterRegistry meterRegistry,
+			@Value("${bulk.initial-concurrency:2}") int initialConcurrency,
+			@Value("${bulk.max-concurrency:8}") int maxConcurrency,
+			@Value("${bulk.queue-capacity:200}") int queueCapacity,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+		this.concurrencyLimiter = new AdaptiveConcurrencyLimiter(initialConcurrency, maxConcurrency);
+		this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(Math.max(1, queueCapacity)),
+				ExecutorConfig.threadFactory("bulk-", virtualThreads));
+		this.capacity = new Semaphore(maxConcurrency + Math.max(1, queueCapacity));
+		this.throttled = Counter.builder("bulk.throttled").description("Bulk items answered with HTTP 429")
+				.register(meterRegistry);
+		Gauge.builder("bulk.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+				.description("Current adaptive concurrency limit for bulk items").register(meterRegistry);
+		Gauge.builder("bulk.capacity.available", capacity, Semaphore::availablePermits)
+				.description("Bulk items that can still be accepted").register(meterRegistry);
+	}
+
+	public int getMaxItems() {
+		return maxItems;
+	}
+
+	/**
+	 * Start every valid item and return an emitter that receives an "item"
+	 * event per finished item and a final "complete" event with the totals.
+	 * Invalid items are answered first, each with its own error, without
+	 * running. Throws {@link AdmissionRejectedException} when the valid items
+	 * do not fit in the queue.
+	 */
+	public SseEmitter run(BulkScaffoldRequest request) {
+		List<BulkScaffoldItem> items = request.getItems();
+		List<BulkItemResult> invalid = new ArrayList<>();
+		List<BulkItemResult> accepted = new ArrayList<>();
+		for (int i = 0; i < items.size(); i++) {
+			BulkScaffoldItem item = items.get(i);
+			BulkItemResult result = new BulkItemResult(i, item != null ? item : new BulkScaffoldItem());
+			String problem = validate(item);
+			if (problem != null) {
+				result.setError(problem);
+				invalid.add(result);
+			} else {
+				accepted.add(result);
+			}
+		}
+		if (!accepted.isEmpty() && !capacity.tryAcquire(accepted.size())) {
+			throw new AdmissionRejectedException("bulk queue cannot take " + accepted.size() + " more items ("
+					+ capacity.availablePermits() + " free)", RETRY_AFTER_SECONDS);
+		}
+
+		SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+		ReentrantLock sendLock = new ReentrantLock();
+		AtomicInteger remaining = new AtomicInteger(items.size());
+		AtomicInteger failures = new AtomicInteger();
+		Runnable finishOne = () -> {
+			if (remaining.decrementAndGet() == 0) {
+				send(emitter, sendLock, "complete", Map.of("total", items.size(), "failed", failures.get()));
+				emitter.complete();
+			}
+		};
+		if (items.isEmpty()) {
+			send(emitter, sendLock, "complete", Map.of("total", 0, "failed", 0));
+			emitter.complete();
+			return emitter;
+		}
+		for (BulkItemResult result : invalid) {
+			failures.incrementAndGet();
+			send(emitter, sendLock, "item", result);
+			finishOne.run();
+		}
+		for (BulkItemResult result : accepted) {
+			executor.execute(() -> {
+				try {
+					runItem(result, request.isBypassCache());
+				} finally {
+					capacity.release();
+				}
+				if (!result.isSuccess()) {
+					failures.incrementAndGet();
+				}
+				send(emitter, sendLock, "item", result);
+				finishOne.run();
+			});
+		}
+		return emitter;
+	}
+
+	/**
+	 * Why an item cannot run, or null when it can.
+	 */
+	private static String validate(BulkScaffoldItem item) {
+		if (item == null) {
+			return "item is empty";
+		}
+		if (!StringUtils.hasText(item.getPrompt())) {
+			return "prompt is required";
+		}
+		if (!StringUtils.hasText(item.getAgent())) {
+			return "agent is required";
+		}
+		String agent = item.getAgent().trim();
+		if (!agent.equalsIgnoreCase("Scaffold") && !agent.equalsIgnoreCase("Spec")) {
+			return "agent must be Scaffold or Spec";
+		}
+		return null;
+	}
+
+	private void runItem(BulkItemResult result, boolean bypassCache) {
+		long start = System.nanoTime();
+		try {
+			for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+				result.setAttempts(attempt);
+				concurrencyLimiter.acquire();
+				try {
+					result.setResult(geminiApiService.process(result.getPrompt(), result.getAgent(), bypassCache,
+							PipelineListener.NONE));
+					result.setSuccess(true);
+					result.setError(null);
+					concurrencyLimiter.onSuccess();
+					return;
+				} catch (Exception e) {
+					result.setError(e.getMessage());
+					if (!isThrottled(e)) {
+						logger.warn("Bulk item {} failed: {}", result.getIndex(), e.getMessage());
+						return;
+					}
+					throttled.increment();
+					concurrencyLimiter.onThrottled();
+				} finally {
+					concurrencyLimiter.release();
+				}
+				if (attempt < maxAttempts) {
+					TimeUnit.MILLISECONDS.sleep(backoffMs << (attempt - 1));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			result.setError("interrupted");
+		} finally {
+			result.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	private static boolean isThrottled(Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ApiException apiException && apiException.code() == TOO_MANY_REQUESTS) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void send(SseEmitter emitter, ReentrantLock sendLock, String name, Object data) {
+		sendLock.lock();
+		try {
+			emitter.send(SseEmitter.event().name(name).data(data));
+		} catch (IOException | IllegalStateException e) {
+			logger.debug("Bulk client went away: {}", e.getMessage());
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.WebVipers.gemini.service;
+
+import java.time.Duration;
+
+import com.google.genai.types.Content;
+
+/**
+ * Stores static prompt context with the model provider so requests can
+ * reference it by handle instead of resending it.
+ */
+public interface ContextCacheProvider {
+
+	/**
+	 * Register content for the model and return the handle to pass as
+	 * cachedContent on generate calls.
+	 */
+	String create(String model, String displayName, Content content, Duration ttl) throws Exception;
+
+	void delete(String handle) throws Exception;
+
+}
@@ -0,0 +1,227 @@
+package com.WebVipers.gemini.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps large static prompt context, such as Agent-template.md, registered
+ * as a cached context with the model provider. A context is created on first
+ * use and recreated when the template's hash changes or the cached copy is
+ * about to expire. Callers hold a {@link Lease} on the context for the length
+ * of their model call; a replaced context is deleted once the last lease on
+ * it is closed, so calls already using it still find it.
+ */
+@Service
+public class ContextCacheService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ContextCacheService.class);
+
+	private final class CachedContext {
+
+		private final String digest;
+
+		private final String handle;
+
+		private final Instant refreshAt;
+
+		// open leases, or -1 once replaced and released
+		private final AtomicInteger holders = new AtomicInteger();
+
+		private volatile boolean replaced;
+
+		private CachedContext(String digest, String handle, Instant refreshAt) {
+			this.digest = digest;
+			this.handle = handle;
+			this.refreshAt = refreshAt;
+		}
+
+		private boolean hold() {
+			int count;
+			do {
+				count = holders.get();
+				if (count < 0) {
+					return false;
+				}
+			} while (!holders.compareAndSet(count, count + 1));
+			return true;
+		}
+
+		private void release() {
+			if (holders.decrementAndGet() == 0 && replaced) {
+				deleteIfUnused();
+			}
+		}
+
+		private void replace() {
+			replaced = true;
+			deleteIfUnused();
+		}
+
+		private void deleteIfUnused() {
+			if (handle != null && holders.compareAndSet(0, -1)) {
+				delete(handle);
+			}
+		}
+	}
+
+	/**
+	 * A cached context in use by one model call. Close it when the call is
+	 * done.
+	 */
+	public static final class Lease implements AutoCloseable {
+
+		private final CachedContext context;
+
+		private boolean closed;
+
+		private Lease(CachedContext context) {
+			this.context = context;
+		}
+
+		public String getHandle() {
+			return context.handle;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				context.release();
+			}
+		}
+	}
+
+	@Value("${gemini.context-cache.enabled:true}")
+	private boolean enabled;
+
+	@Value("${gemini.context-cache.ttl-ms:3600000}")
+	private long ttlMs;
+
+	@Value("${gemini.context-cache.refresh-margin-ms:300000}")
+	private long refreshMarginMs;
+
+	@Value("${gemini.context-cache.failure-backoff-ms:600000}")
+	private long failureBackoffMs;
+
+	@Autowired
+	private ContextCacheProvider provider;
+
+	private final Map<String, CachedContext> contexts = new ConcurrentHashMap<>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Counter hits;
+
+	private final Counter creations;
+
+	private final Counter failures;
+
+	public ContextCacheService(MeterRegistry meterRegistry) {
+		this.hits = Counter.builder("gemini.context-cache.hits")
+				.description("Model calls that referenced an existing cached context").register(meterRegistry);
+		this.creations = Counter.builder("gemini.context-cache.creations")
+				.description("Cached contexts registered with the model provider").register(meterRegistry);
+		this.failures = Counter.builder("gemini.context-cache.failures")
+				.description("Cached context registrations that failed").register(meterRegistry);
+	}
+
+	/**
+	 * Lease on the cached context holding the template for this model, or
+	 * empty when caching is disabled or the provider refused it, in which case
+	 * the caller should send the template inline.
+	 */
+	public Optional<Lease> lease(String model, PromptTemplate template) {
+		if (!enabled) {
+			return Optional.empty();
+		}
+		String key = model + '/' + template.getName();
+		while (true) {
+			CachedContext current = contexts.get(key);
+			if (isUsable(current, template)) {
+				if (current.hold()) {
+					return reuse(current);
+				}
+				// replaced and deleted since it was read; the map has its successor
+				continue;
+			}
+			lock.lock();
+			try {
+				current = contexts.get(key);
+				if (isUsable(current, template)) {
+					continue;
+				}
+				CachedContext created = create(model, template);
+				created.hold();
+				contexts.put(key, created);
+				if (current != null) {
+					current.replace();
+				}
+				return Optional.of(new Lease(created));
+			} catch (Exception e) {
+				failures.increment();
+				// do not retry on every call while the provider keeps refusing this template
+				CachedContext refused = new CachedContext(template.getDigest(), null,
+						Instant.now().plusMillis(failureBackoffMs));
+				contexts.put(key, refused);
+				if (current != null) {
+					current.replace();
+				}
+				logger.warn("Could not cache {} for {}, sending it inline: {}", template.getName(), model,
+						e.getMessage());
+				return Optional.empty();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private Optional<Lease> reuse(CachedContext context) {
+		if (context.handle == null) {
+			context.release();
+			return Optional.empty();
+		}
+		hits.increment();
+		return Optional.of(new Lease(context));
+	}
+
+	private boolean isUsable(CachedContext context, PromptTemplate template) {
+		return context != null && context.digest.equals(template.getDigest())
+				&& Instant.now().isBefore(context.refreshAt);
+	}
+
+	private CachedContext create(String model, PromptTemplate template) throws Exception {
+		Content content = Content.fromParts(Part.fromBytes(template.getBytes(), "text/plain"));
+		Duration ttl = Duration.ofMillis(ttlMs);
+		String handle = provider.create(model, template.getName(), content, ttl);
+		creations.increment();
+		logger.info("Cached {} for {} as {}", template.getName(), model, handle);
+		return new CachedContext(template.getDigest(), handle,
+				Instant.now().plus(ttl).minusMillis(Math.min(refreshMarginMs, ttlMs / 2)));
+	}
+
+	private void delete(String handle) {
+		try {
+			provider.delete(handle);
+		} catch (Exception e) {
+			logger.debug("Could not delete cached context {}: {}", handle, e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,310 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Writes generated files to disk in parallel. Directories are created once
+ * per batch, file contents are encoded straight into a per-thread direct
+ * buffer and written through a {@link FileChannel}, and an optional fsync is
+ * done once when the batch completes. A path is written once per batch; a
+ * second file with the same path is skipped and the first one kept.
+ */
+@Service
+public class FileMaterializer implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileMaterializer.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal
+			.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+	private static final ThreadLocal<CharsetEncoder> ENCODERS = ThreadLocal
+			.withInitial(StandardCharsets.UTF_8::newEncoder);
+
+	public record Stats(int files, long bytes, long elapsedNanos) {
+
+		public double filesPerSecond() {
+			return elapsedNanos == 0 ? 0 : files * 1_000_000_000d / elapsedNanos;
+		}
+
+		public double bytesPerSecond() {
+			return elapsedNanos == 0 ? 0 : bytes * 1_000_000_000d / elapsedNanos;
+		}
+	}
+
+	@Value("${materializer.fsync:false}")
+	private boolean fsync;
+
+	@Value("${materializer.max-pending:256}")
+	private int maxPending;
+
+	private final ExecutorService executor;
+
+	private final Counter filesWritten;
+
+	private final Counter bytesWritten;
+
+	private final Timer batchTimer;
+
+	public FileMaterializer(MeterRegistry meterRegistry,
+			@Value("${materializer.threads:4}") int threads) {
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "materializer-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.filesWritten = Counter.builder("materializer.files").description("Generated files written")
+				.register(meterRegistry);
+		this.bytesWritten = Counter.builder("materializer.bytes").description("Generated bytes written")
+				.baseUnit("bytes").register(meterRegistry);
+		this.batchTimer = Timer.builder("materializer.batch").description("Time to materialize a generated project")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Start a batch of writes below the given root directory. Close it when
+	 * done, so a batch abandoned after a failure has no writes left running.
+	 */
+	public Batch open(Path root) {
+		return new Batch(root.toAbsolutePath().normalize());
+	}
+
+	public class Batch implements AutoCloseable {
+
+		private final Path root;
+
+		private final long start = System.nanoTime();
+
+		private final Map<Path, Boolean> directories = new ConcurrentHashMap<>();
+
+		private final Set<Path> paths = ConcurrentHashMap.newKeySet();
+
+		private final List<Future<Path>> pending = new ArrayList<>();
+
+		// set once a write failed or the batch was abandoned; queued writes are then skipped
+		private volatile boolean aborted;
+
+		private final Semaphore inFlight = new Semaphore(maxPending);
+
+		private final AtomicLong bytes = new AtomicLong();
+
+		private Batch(Path root) {
+			this.root = root;
+		}
+
+		/**
+		 * Queue a file for writing. Blocks when too many writes are already
+		 * pending, so a fast producer cannot buffer the whole project. Returns
+		 * false, writing nothing, when the batch already has the path.
+		 */
+		public boolean write(String directory, String fileName, CharSequence content) throws IOException {
+			Path file = resolve(directory, fileName);
+			if (!paths.add(file)) {
+				return false;
+			}
+			try {
+				inFlight.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while queueing " + file, e);
+			}
+			try {
+				pending.add(executor.submit(() -> {
+					try {
+						if (aborted) {
+							return null;
+						}
+						writeFile(file, content);
+						return file;
+					} catch (IOException | RuntimeException e) {
+						aborted = true;
+						throw e;
+					} finally {
+						inFlight.release();
+					}
+				}));
+			} catch (RuntimeException e) {
+				inFlight.release();
+				throw e;
+			}
+			return true;
+		}
+
+		private Path resolve(String directory, String fileName) throws IOException {
+			String relative = directory.replace('\\', '/');
+			while (relative.startsWith("/")) {
+				relative = relative.substring(1);
+			}
+			Path file = root.resolve(relative).resolve(fileName).normalize();
+			if (!file.startsWith(root) || file.equals(root)) {
+				throw new IOException("Generated file escapes the project root: " + directory + fileName);
+			}
+			return file;
+		}
+
+		private void writeFile(Path file, CharSequence content) throws IOException {
+			Path parent = file.getParent();
+			try {
+				directories.computeIfAbsent(parent, directory -> {
+					try {
+						Files.createDirectories(directory);
+						return Boolean.TRUE;
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			ByteBuffer buffer = BUFFERS.get();
+			CharsetEncoder encoder = ENCODERS.get().reset();
+			CharBuffer chars = content instanceof CharBuffer view ? view.duplicate() : CharBuffer.wrap(content);
+			long written = 0;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE)) {
+				CoderResult result;
+				do {
+					buffer.clear();
+					result = encoder.encode(chars, buffer, true);
+					if (result.isError()) {
+						result.throwException();
+					}
+					buffer.flip();
+					while (buffer.hasRemaining()) {
+						written += channel.write(buffer);
+					}
+				} while (result.isOverflow());
+				buffer.clear();
+				encoder.flush(buffer);
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					written += channel.write(buffer);
+				}
+			}
+			bytes.addAndGet(written);
+		}
+
+		/**
+		 * Wait for every queued write, fsync the batch when configured, and
+		 * report throughput. When a write fails the writes not yet started are
+		 * skipped, and the first failure is thrown once the running ones have
+		 * finished.
+		 */
+		public Stats await() throws IOException {
+			List<Path> files = new ArrayList<>(pending.size());
+			IOException failure = settle(files);
+			if (failure != null) {
+				throw failure;
+			}
+			if (fsync) {
+				for (Path file : files) {
+					try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+						channel.force(true);
+					}
+				}
+			}
+			Stats stats = new Stats(files.size(), bytes.get(), System.nanoTime() - start);
+			filesWritten.increment(stats.files());
+			bytesWritten.increment(stats.bytes());
+			batchTimer.record(stats.elapsedNanos(), TimeUnit.NANOSECONDS);
+			logger.info("Materialized {} files ({} bytes) under {} at {} files/s, {} bytes/s", stats.files(),
+					stats.bytes(), root, Math.round(stats.filesPerSecond()), Math.round(stats.bytesPerSecond()));
+			return stats;
+		}
+
+		/**
+		 * Skip the writes not yet started and wait for the running ones, so
+		 * nothing lands in the root after the batch is abandoned. Does nothing
+		 * after {@link #await()}.
+		 */
+		@Override
+		public void close() {
+			aborted = true;
+			IOException failure = settle(new ArrayList<>());
+			if (failure != null) {
+				logger.debug("Abandoned batch under {} had a failed write: {}", root, failure.getMessage());
+			}
+		}
+
+		/**
+		 * Wait for every pending write, even when interrupted, collecting the
+		 * written files and returning the first failure.
+		 */
+		private IOException settle(List<Path> written) {
+			IOException failure = null;
+			boolean interrupted = false;
+			for (Future<Path> future : pending) {
+				while (true) {
+					try {
+						Path file = future.get();
+						if (file != null) {
+							written.add(file);
+						}
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+						aborted = true;
+						if (failure == null) {
+							failure = new IOException("Interrupted while writing generated files", e);
+						}
+					} catch (ExecutionException e) {
+						aborted = true;
+						if (failure == null) {
+							failure = e.getCause() instanceof IOException ioException ? ioException
+									: new IOException("Failed to write generated files", e.getCause());
+						}
+						break;
+					}
+				}
+			}
+			pending.clear();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return failure;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+
+}
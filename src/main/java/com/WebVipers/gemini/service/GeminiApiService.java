@@ -1,27 +1,40 @@
 package com.WebVipers.gemini.service;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import com.WebVipers.gemini.model.BackStageResponseDTO;
 import com.WebVipers.gemini.model.BackstageRequestDTO;
-import com.google.genai.Client;
-import com.google.genai.types.Content;
-import com.google.genai.types.GenerateContentResponse;
-import com.google.genai.types.Part;
+import com.WebVipers.gemini.model.GeneratedFile;
+import com.WebVipers.gemini.model.LlmAttachment;
+import com.WebVipers.gemini.model.LlmRequest;
+import com.WebVipers.gemini.model.LlmResponse;
+import com.WebVipers.gemini.model.PipelineStage;
+import com.WebVipers.gemini.model.ScaffoldDocument;
 
 @Service
 public class GeminiApiService {
 
+	private static final Logger logger = LoggerFactory.getLogger(GeminiApiService.class);
+
+	public static final String SCAFFOLD = "Scaffold";
+
+	public static final String SPEC = "Spec";
+
 	@Value("${root.directory.scafold.code}")
 	private String rootDirectoryScafoldCode;
 	
@@ -29,6 +42,21 @@ public class GeminiApiService {
 	private String rootDirectorySpec;
 	
 
+	@Value("${llm.model:gemini-2.5-flash}")
+	private String modelName;
+
+	@Value("${gemini.scaffold.streaming:true}")
+	private boolean scaffoldStreaming;
+
+	@Value("${gemini.scaffold.output:delimited}")
+	private String scaffoldOutput;
+
+	@Value("${gemini.scaffold.json.max-files:200}")
+	private int maxScaffoldFiles;
+
+	@Value("${gemini.scaffold.json.max-file-length:100000}")
+	private int maxScaffoldFileLength;
+
 	@Value("${backstage.url.location}")
 	private String backstageUrlLocation;
 
@@ -46,71 +74,398 @@ public class GeminiApiService {
 	
 	
 	@Autowired
+	@Lazy
 	private GitService gitService;
 
 	@Autowired
-	private WebClientService webClientService;
+	private BackstageRegistrationService backstageRegistrationService;
+
+	@Autowired
+	private LlmService llmService;
+
+	@Autowired
+	private ResponseCacheService responseCacheService;
+
+	@Autowired
+	private RepositoryWorkScheduler repositoryWorkScheduler;
+
+	@Autowired
+	private GitPushCoalescer gitPushCoalescer;
+
+	@Autowired
+	private FileMaterializer fileMaterializer;
+
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+
+	@Autowired
+	private PromptTemplateService promptTemplateService;
+
+	@Autowired
+	private ContextCacheService contextCacheService;
+
+	@Autowired
+	private SingleFlight singleFlight;
+
+	@Autowired
+	private ArtifactStore artifactStore;
+
+	/**
+	 * Run the scaffold or spec agent for a prompt, reporting each stage to the
+	 * listener as it starts. With bypassCache set the model is always called.
+	 * A request identical to one already running, down to the prompt text and
+	 * bypassCache, shares that run's result.
+	 */
+	public String process(String prompt, String agent, boolean bypassCache, PipelineListener listener)
+			throws Exception {
+		return process(prompt, agent, bypassCache, List.of(), listener);
+	}
+
+	/**
+	 * Same as {@link #process(String, String, boolean, PipelineListener)} with
+	 * uploaded files sent to the model along with the prompt. Only requests
+	 * with the same prompt and the same attachments share a run or a cached
+	 * response.
+	 */
+	public String process(String prompt, String agent, boolean bypassCache, List<LlmAttachment> attachments,
+			PipelineListener listener) throws Exception {
+		String normalized = normalizeAgent(agent);
+		StringBuilder flight = new StringBuilder(prompt);
+		attachments.forEach(attachment -> flight.append('\n').append(attachment.getDigest()));
+		return singleFlight.execute(normalized, flight.toString(), bypassCache, listener, shared -> {
+			if (normalized.equals(SCAFFOLD)) {
+				return getScafoldResponse(prompt, bypassCache, attachments, shared);
+			}
+			return getSpecResponse(prompt, bypassCache, attachments, shared);
+		});
+	}
+
+	/**
+	 * The agent a request runs: Scaffold for "Scaffold" in any case and with
+	 * surrounding blanks, Spec for anything else. Routing, single-flight keys,
+	 * admission lanes and metric tags all go through this.
+	 */
+	public static String normalizeAgent(String agent) {
+		return agent != null && agent.trim().equalsIgnoreCase(SCAFFOLD) ? SCAFFOLD : SPEC;
+	}
 
 	public String getScafoldResponse(String prompt) throws Exception {
-		Client client = null;
-		try {
-			client = new Client();
+		return getScafoldResponse(prompt, false, PipelineListener.NONE);
+	}
+
+	public String getScafoldResponse(String prompt, boolean bypassCache, PipelineListener listener) throws Exception {
+		return getScafoldResponse(prompt, bypassCache, List.of(), listener);
+	}
 
-			Content content = Content.fromParts(Part.fromText(generatePrompt(prompt, "Instructions.md")));
+	public String getScafoldResponse(String prompt, boolean bypassCache, List<LlmAttachment> attachments,
+			PipelineListener listener) throws Exception {
+		boolean structured = isStructuredScaffold();
+		String instructions = scaffoldInstructions();
+		String promptText = generatePrompt(prompt, instructions);
+		LlmRequest request = scaffoldRequest(promptText);
+		request.getAttachments().addAll(attachments);
+		String cacheKey = responseCacheService.key(modelName, instructions, promptText, digests(attachments));
 
-			GenerateContentResponse response = client.models.generateContent("gemini-2.5-flash", content, null);
-			String finalResponse = response.text();
+		listener.onStage(PipelineStage.GENERATING);
+		Path staging = repositoryWorkScheduler.createStagingDirectory(rootDirectoryScafoldCode);
+		try {
+			String stagingRoot = staging.toString() + "/";
+			String finalResponse = bypassCache ? null : responseCacheService.get(cacheKey);
+			if (finalResponse != null) {
+				listener.onStage(PipelineStage.WRITING_FILES);
+				generateFiles(finalResponse, stagingRoot);
+			} else if (scaffoldStreaming && structured) {
+				finalResponse = streamStructuredScaffold(request, stagingRoot, listener, cacheKey);
+			} else if (scaffoldStreaming) {
+				finalResponse = streamScaffold(request, stagingRoot, listener, cacheKey);
+			} else {
+				LlmResponse response = llmService.generate(request);
+				finalResponse = response.getText();
+				pipelineMetrics.recordModelResponse("Scaffold", response);
 
-			// ClassPathResource resource = new ClassPathResource("readme.txt");
-//			String finalResponse = null;
-//			try (InputStream inputStream = resource.getInputStream()) {
-//				finalResponse = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-//			}
-			generateFiles(finalResponse);
-			gitService.commitAndPush(prompt, ".",rootDirectoryScafoldCode,remoteUrlGeneratedCode);
-			createServiceCatalog();
+				// ClassPathResource resource = new ClassPathResource("readme.txt");
+//				String finalResponse = null;
+//				try (InputStream inputStream = resource.getInputStream()) {
+//					finalResponse = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+//				}
+				listener.onStage(PipelineStage.WRITING_FILES);
+				if (generateFiles(finalResponse, stagingRoot)) {
+					responseCacheService.put(cacheKey, finalResponse);
+				}
+			}
+			artifactStore.record("Scaffold", prompt, staging);
+			repositoryWorkScheduler.execute(rootDirectoryScafoldCode, () -> {
+				repositoryWorkScheduler.promote(staging, rootDirectoryScafoldCode, true);
+				return gitService.addAndCommit(prompt, ".", rootDirectoryScafoldCode, remoteUrlGeneratedCode,
+						listener);
+			});
+			listener.onStage(PipelineStage.PUSHING);
+			gitPushCoalescer.push(rootDirectoryScafoldCode, remoteUrlGeneratedCode);
+			listener.onStage(PipelineStage.REGISTERING);
+			createServiceCatalog().whenComplete((response, error) -> listener.onRegistration(error));
 			return finalResponse;
-		} catch (Exception e) {
-			throw e;
 		} finally {
-			if (client != null) {
-				client.close();
+			repositoryWorkScheduler.discard(staging);
+		}
+	}
+
+	/**
+	 * Generate and hand the project back as an archive only: files go into
+	 * the archive as they are parsed from the streamed response, and nothing
+	 * is written to disk, committed or registered with Backstage. For the same
+	 * reason the generation is not kept in the {@link ArtifactStore}: archive
+	 * mode is the way to generate without leaving a copy on the server.
+	 */
+	public void streamArchive(String prompt, String agent, boolean bypassCache, ArchiveWriter archive,
+			PipelineListener listener) throws Exception {
+		listener.onStage(PipelineStage.GENERATING);
+		if (!normalizeAgent(agent).equals(SCAFFOLD)) {
+			generateSpec(prompt, bypassCache, List.of(), response -> {
+				listener.onStage(PipelineStage.WRITING_FILES);
+				archive.write("", specFileName(prompt), response);
+			});
+			return;
+		}
+		String instructions = scaffoldInstructions();
+		String promptText = generatePrompt(prompt, instructions);
+		String cacheKey = responseCacheService.key(modelName, instructions, promptText);
+		AtomicBoolean writing = new AtomicBoolean();
+		ScaffoldStreamParser.FileHandler handler = (path, fileName, fileContent) -> {
+			if (writing.compareAndSet(false, true)) {
+				listener.onStage(PipelineStage.WRITING_FILES);
+			}
+			if (!archive.write(path, fileName, fileContent)) {
+				logger.warn("Skipping duplicate generated file {}{}", path, fileName);
+			}
+		};
+		String cached = bypassCache ? null : responseCacheService.get(cacheKey);
+		String readme;
+		String cacheable = null;
+		if (cached != null) {
+			ScaffoldDocument document = ScaffoldJsonParser.parse(cached);
+			listener.onStage(PipelineStage.WRITING_FILES);
+			for (GeneratedFile file : document.getFiles()) {
+				if (!archive.write(file.getPath(), file.getFileName(), file.getContent())) {
+					logger.warn("Skipping duplicate generated file {}{}", file.getPath(), file.getFileName());
+				}
+			}
+			readme = document.getReadme() != null ? document.getReadme() : cached;
+		} else {
+			ScaffoldJsonParser parser = new ScaffoldJsonParser(handler);
+			LlmResponse response = llmService.stream(scaffoldRequest(promptText), parser::feed);
+			parser.finish();
+			pipelineMetrics.recordModelResponse("Scaffold", response);
+			for (String problem : parser.getProblems()) {
+				logger.warn("Scaffold output incomplete: {}", problem);
+			}
+			readme = parser.isStructured() && parser.getReadme() != null ? parser.getReadme() : response.getText();
+			if (parser.getProblems().isEmpty()) {
+				cacheable = response.getText();
 			}
+		}
+		// a README.md or catalog-info.yaml the model generated itself has already been sent and is kept
+		if (!archive.write("", "README.md", readme)) {
+			logger.debug("Keeping the generated README.md in the archive");
+		}
+		if (!archive.write("", "catalog-info.yaml",
+				promptTemplateService.get(PromptTemplateService.CATALOG_INFO).getText())) {
+			logger.debug("Keeping the generated catalog-info.yaml in the archive");
+		}
+		if (cacheable != null) {
+			responseCacheService.put(cacheKey, cacheable);
+		}
+		logger.info("Streamed {} files for {} as an archive", archive.getEntryCount(), agent);
+	}
+
+	/**
+	 * Structured output asks for JSON matching a schema instead of delimited
+	 * text.
+	 */
+	private boolean isStructuredScaffold() {
+		return scaffoldOutput.equalsIgnoreCase("json");
+	}
+
+	private String scaffoldInstructions() {
+		return isStructuredScaffold() ? PromptTemplateService.INSTRUCTIONS_JSON : PromptTemplateService.INSTRUCTIONS;
+	}
+
+	private LlmRequest scaffoldRequest(String promptText) {
+		LlmRequest request = new LlmRequest(modelName, promptText);
+		if (isStructuredScaffold()) {
+			request.setResponseSchema(ScaffoldJsonParser.schema(maxScaffoldFiles, maxScaffoldFileLength));
+		}
+		return request;
+	}
+
+	/**
+	 * Stream the scaffold from the model, writing each generated file as soon
+	 * as its closing @@@@ is received and README.md once the response is
+	 * complete. The response is cached once every file has been written,
+	 * unless the parser had to skip malformed blocks.
+	 */
+	private String streamScaffold(LlmRequest request, String stagingRoot, PipelineListener listener, String cacheKey)
+			throws Exception {
+		AtomicBoolean writing = new AtomicBoolean();
+		try (FileMaterializer.Batch batch = fileMaterializer.open(Path.of(stagingRoot))) {
+			ScaffoldStreamParser parser = new ScaffoldStreamParser((path, fileName, fileContent) -> {
+				if (writing.compareAndSet(false, true)) {
+					listener.onStage(PipelineStage.WRITING_FILES);
+				}
+				writeGenerated(batch, path, fileName, fileContent);
+			});
+			LlmResponse response = llmService.stream(request, parser::feed);
+			parser.finish();
+			pipelineMetrics.recordModelResponse("Scaffold", response);
+			for (String problem : parser.getProblems()) {
+				logger.warn("Skipping malformed scaffold block: {}", problem);
+			}
+			addProjectFiles(batch, response.getText());
+			batch.await();
+			if (parser.getProblems().isEmpty()) {
+				responseCacheService.put(cacheKey, response.getText());
+			}
+			return response.getText();
+		}
+	}
 
+	/**
+	 * Stream structured scaffold output from the model, writing each file as
+	 * soon as its JSON object is complete. Output that is not JSON is parsed in
+	 * the delimiter format instead. The response is cached only when every file
+	 * was written and the parser found nothing wrong with it.
+	 */
+	private String streamStructuredScaffold(LlmRequest request, String stagingRoot, PipelineListener listener,
+			String cacheKey) throws Exception {
+		AtomicBoolean writing = new AtomicBoolean();
+		try (FileMaterializer.Batch batch = fileMaterializer.open(Path.of(stagingRoot))) {
+			ScaffoldJsonParser parser = new ScaffoldJsonParser((path, fileName, fileContent) -> {
+				if (writing.compareAndSet(false, true)) {
+					listener.onStage(PipelineStage.WRITING_FILES);
+				}
+				writeGenerated(batch, path, fileName, fileContent);
+			});
+			LlmResponse response = llmService.stream(request, parser::feed);
+			parser.finish();
+			pipelineMetrics.recordModelResponse("Scaffold", response);
+			for (String problem : parser.getProblems()) {
+				logger.warn("Structured scaffold output incomplete: {}", problem);
+			}
+			if (!parser.isStructured()) {
+				logger.warn("Model ignored the response schema, parsed {} files from delimited output",
+						parser.getFileCount());
+			}
+			addProjectFiles(batch,
+					parser.isStructured() && parser.getReadme() != null ? parser.getReadme() : response.getText());
+			batch.await();
+			if (parser.getProblems().isEmpty()) {
+				responseCacheService.put(cacheKey, response.getText());
+			}
+			return response.getText();
 		}
 	}
 
 	public String getSpecResponse(String prompt) throws Exception {
-		Client client = null;
+		return getSpecResponse(prompt, false, PipelineListener.NONE);
+	}
+
+	public String getSpecResponse(String prompt, boolean bypassCache, PipelineListener listener) throws Exception {
+		return getSpecResponse(prompt, bypassCache, List.of(), listener);
+	}
+
+	public String getSpecResponse(String prompt, boolean bypassCache, List<LlmAttachment> attachments,
+			PipelineListener listener) throws Exception {
+		listener.onStage(PipelineStage.GENERATING);
+		String fileName = specFileName(prompt);
+		Path staging = repositoryWorkScheduler.createStagingDirectory(rootDirectorySpec);
+		String finalResponse;
 		try {
-			client = new Client();
-			String finalResponse = null;
-			ClassPathResource resource = new ClassPathResource("Agent-template.md");
-			try (InputStream inputStream = resource.getInputStream()) {
-				Content content = Content.fromParts(Part.fromText(generatePrompt(prompt, "Instructions-spec.md")),
-						Part.fromBytes(inputStream.readAllBytes(), "text/plain"));
-				GenerateContentResponse response = client.models.generateContent("gemini-2.5-flash", content, null);
-				finalResponse = response.text();
-			}
-			String fileName="Agent-"+prompt.replaceAll(" ", "-")+".md";
-			writeContent(finalResponse, rootDirectorySpec,  fileName);
-			gitService.commitAndPush(prompt, ".",rootDirectorySpec,remoteUrlSpec);
-			return finalResponse;
-		} catch (Exception e) {
-			throw e;
+			finalResponse = generateSpec(prompt, bypassCache, attachments, response -> {
+				listener.onStage(PipelineStage.WRITING_FILES);
+				writeContent(response, staging.toString() + "/", fileName);
+			});
+			artifactStore.record("Spec", prompt, staging);
+			repositoryWorkScheduler.execute(rootDirectorySpec, () -> {
+				repositoryWorkScheduler.promote(staging, rootDirectorySpec, false);
+				return gitService.addAndCommit(prompt, ".", rootDirectorySpec, remoteUrlSpec, listener);
+			});
+			listener.onStage(PipelineStage.PUSHING);
+			gitPushCoalescer.push(rootDirectorySpec, remoteUrlSpec);
 		} finally {
-			if (client != null) {
-				client.close();
+			repositoryWorkScheduler.discard(staging);
+		}
+		return finalResponse;
+	}
+
+	/**
+	 * Where a generated response is written. It is cached only after the
+	 * writer has succeeded.
+	 */
+	@FunctionalInterface
+	private interface ResponseWriter {
+		void write(String response) throws IOException;
+	}
+
+	private String generateSpec(String prompt, boolean bypassCache, List<LlmAttachment> attachments,
+			ResponseWriter writer) throws Exception {
+		String promptText = generatePrompt(prompt, PromptTemplateService.INSTRUCTIONS_SPEC);
+		PromptTemplate agentTemplate = promptTemplateService.get(PromptTemplateService.AGENT_TEMPLATE);
+		String cacheKey = responseCacheService.key(modelName, PromptTemplateService.INSTRUCTIONS_SPEC, promptText,
+				digests(attachments, agentTemplate.getDigest()));
+		String finalResponse = bypassCache ? null : responseCacheService.get(cacheKey);
+		if (finalResponse == null) {
+			LlmRequest request = new LlmRequest(modelName, promptText);
+			request.getAttachments().addAll(attachments);
+			// reference the cached template when the backend holds it, otherwise attach it
+			Optional<ContextCacheService.Lease> cachedTemplate = llmService.supportsContextCache()
+					? contextCacheService.lease(modelName, agentTemplate)
+					: Optional.empty();
+			LlmResponse response;
+			try {
+				if (cachedTemplate.isPresent()) {
+					request.setCachedContext(cachedTemplate.get().getHandle());
+				} else {
+					request.setAttachment(agentTemplate.getBytes());
+					request.setAttachmentMimeType("text/plain");
+				}
+				response = llmService.generate(request);
+			} finally {
+				cachedTemplate.ifPresent(ContextCacheService.Lease::close);
 			}
+			finalResponse = response.getText();
+			pipelineMetrics.recordModelResponse("Spec", response);
+			writer.write(finalResponse);
+			responseCacheService.put(cacheKey, finalResponse);
+		} else {
+			writer.write(finalResponse);
+		}
+		return finalResponse;
+	}
 
+	/**
+	 * Cache key parts for the attachments, by content digest.
+	 */
+	private static byte[][] digests(List<LlmAttachment> attachments, String... extra) {
+		byte[][] digests = new byte[attachments.size() + extra.length][];
+		for (int i = 0; i < extra.length; i++) {
+			digests[i] = extra[i].getBytes(StandardCharsets.UTF_8);
 		}
+		for (int i = 0; i < attachments.size(); i++) {
+			digests[extra.length + i] = attachments.get(i).getDigest().getBytes(StandardCharsets.UTF_8);
+		}
+		return digests;
 	}
 
-	public void createServiceCatalog() {
+	private static String specFileName(String prompt) {
+		return "Agent-" + prompt.replace(' ', '-') + ".md";
+	}
 
+	/**
+	 * Queue the catalog location for registration with Backstage. Returns
+	 * without waiting; the future carries the outcome.
+	 */
+	public CompletableFuture<BackStageResponseDTO> createServiceCatalog() {
 		BackstageRequestDTO request = new BackstageRequestDTO("url", backstageCatalogPath);
-		BackStageResponseDTO response = webClientService.callPostApi(backstageUrlLocation, request,
-				BackStageResponseDTO.class);
+		return backstageRegistrationService.register(backstageUrlLocation, request);
 	}
 
 	public static void deleteDirectoryWithStream(Path directory) throws IOException {
@@ -132,67 +487,53 @@ public class GeminiApiService {
 		}
 	}
 
-	private String generatePrompt(String prompt, String instructionFile) throws IOException {
-		ClassPathResource resource = new ClassPathResource(instructionFile);
-		try (InputStream inputStream = resource.getInputStream()) {
-			String promptContent = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-			promptContent = promptContent.replaceAll("\\{CHAT_BOT_CONTENT\\}", prompt);
-			return promptContent;
-		}
+	private String generatePrompt(String prompt, String instructionFile) {
+		return promptTemplateService.get(instructionFile)
+				.render(Map.of("CHAT_BOT_CONTENT", prompt, "MODEL_NAME", modelName));
 	}
 
-	private Boolean generateFiles(String response) throws IOException {
-		deleteDirectoryWithStream(Path.of(rootDirectoryScafoldCode));
-		writeContent(response, rootDirectoryScafoldCode, "README.md");
-		createFiles(Path.of(rootDirectoryScafoldCode));
-		addCatlogFile();
-		return true;
+	/**
+	 * Write the parsed files, README.md and catalog-info.yaml. Returns false
+	 * when the response had malformed blocks, so it is not worth caching.
+	 */
+	private boolean generateFiles(String response, String codeRoot) throws IOException {
+		ScaffoldDocument document = ScaffoldJsonParser.parse(response);
+		for (String problem : document.getProblems()) {
+			logger.warn("Skipping malformed scaffold block: {}", problem);
+		}
+		try (FileMaterializer.Batch batch = fileMaterializer.open(Path.of(codeRoot))) {
+			for (GeneratedFile file : document.getFiles()) {
+				writeGenerated(batch, file.getPath(), file.getFileName(), file.getContent());
+			}
+			addProjectFiles(batch, document.getReadme() != null ? document.getReadme() : response);
+			batch.await();
+		}
+		return document.isValid();
 	}
 
-	private void addCatlogFile() throws IOException {
-		ClassPathResource resource = new ClassPathResource("catalog-info.yaml");
-		try (InputStream inputStream = resource.getInputStream()) {
-			String content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-			writeContent(content, rootDirectoryScafoldCode, "catalog-info.yaml");
+	/**
+	 * Write a file the model generated. The first file with a given path wins,
+	 * the same as in an archive.
+	 */
+	private static void writeGenerated(FileMaterializer.Batch batch, String path, String fileName,
+			CharSequence content) throws IOException {
+		if (!batch.write(path, fileName, content)) {
+			logger.warn("Skipping duplicate generated file {}{}", path, fileName);
 		}
 	}
 
-	private void createFiles(Path filePath) throws IOException {
-
-		List<String> lines = Files.readAllLines(Path.of(rootDirectoryScafoldCode + "README.md"));
-		String path = "";
-		String fileName = null;
-		StringBuffer buffer = new StringBuffer();
-		Boolean readContent = false;
-		for (String line : lines) {
-			if (line.startsWith("$$$$")) {
-				path = line.substring(line.lastIndexOf('$') + 1);
-				if (path.contains("your-project-root")) {
-					path = "";
-				}
-				if (!path.endsWith("/")) {
-					path = path + "/";
-				}
-			}
-			if (line.startsWith("&&&&")) {
-				fileName = line.substring(line.lastIndexOf('&') + 1);
-			}
-			if (line.startsWith("@@@@")) {
-				readContent = readContent ? false : true;
-				if (!readContent) {
-					if (fileName != null)
-						writeContent(buffer.toString(), rootDirectoryScafoldCode+path.trim(), fileName.trim());
-					path = "";
-					fileName = null;
-					buffer = new StringBuffer();
-				}
-			} else if (readContent) {
-				buffer.append(line);
-				buffer.append("\n");
-			}
-
+	/**
+	 * Add README.md and catalog-info.yaml after the generated files, keeping
+	 * any the model generated itself.
+	 */
+	private void addProjectFiles(FileMaterializer.Batch batch, CharSequence readme) throws IOException {
+		if (!batch.write("", "README.md", readme)) {
+			logger.debug("Keeping the generated README.md");
+		}
+		if (!batch.write("", "catalog-info.yaml",
+				promptTemplateService.get(PromptTemplateService.CATALOG_INFO).getText())) {
+			logger.debug("Keeping the generated catalog-info.yaml");
 		}
-
 	}
 
 	private void writeContent(String content, String codePath, String filename) throws IOException {
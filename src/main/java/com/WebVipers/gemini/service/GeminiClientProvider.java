@@ -0,0 +1,170 @@
+package com.WebVipers.gemini.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.genai.Client;
+import com.google.genai.types.ClientOptions;
+import com.google.genai.types.HttpOptions;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Holds a single shared Gemini {@link Client} so that requests reuse its
+ * connection pool instead of paying for a new HTTP stack, TLS handshake and
+ * credential lookup each time. The client is closed after it has been idle
+ * for {@code gemini.client.idle-timeout-ms} and rebuilt on next use.
+ */
+@Component
+public class GeminiClientProvider implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(GeminiClientProvider.class);
+
+	@FunctionalInterface
+	public interface ClientCallback<T> {
+		T doWithClient(Client client) throws Exception;
+	}
+
+	@Value("${gemini.client.max-connections:64}")
+	private int maxConnections;
+
+	@Value("${gemini.client.max-connections-per-host:32}")
+	private int maxConnectionsPerHost;
+
+	@Value("${gemini.client.timeout-ms:0}")
+	private int timeoutMs;
+
+	@Value("${gemini.client.idle-timeout-ms:300000}")
+	private long idleTimeoutMs;
+
+	@Autowired
+	private GeminiRateLimiter rateLimiter;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final Counter reused;
+
+	private final Counter created;
+
+	private final Counter evictions;
+
+	private Client client;
+
+	private volatile long lastUsed = System.currentTimeMillis();
+
+	public GeminiClientProvider(MeterRegistry meterRegistry) {
+		this.reused = Counter.builder("gemini.client.reused")
+				.description("Calls that reused the already open shared Gemini client").register(meterRegistry);
+		this.created = Counter.builder("gemini.client.created")
+				.description("Shared Gemini clients built, at first use and after idle eviction")
+				.register(meterRegistry);
+		this.evictions = Counter.builder("gemini.client.evictions")
+				.description("Gemini clients closed after being idle").register(meterRegistry);
+		Gauge.builder("gemini.client.inflight", inFlight, AtomicInteger::get)
+				.description("Gemini calls currently using the shared client").register(meterRegistry);
+	}
+
+	/**
+	 * Run a model call (generate or stream) against the shared client once a
+	 * rate-limit token is available. Only these calls count against the
+	 * requests-per-minute quota the limiter is sized to.
+	 */
+	public <T> T executeGeneration(ClientCallback<T> callback) throws Exception {
+		rateLimiter.acquire();
+		return execute(callback);
+	}
+
+	/**
+	 * Run a call against the shared client. The client stays open for the
+	 * whole callback, so streamed responses can be consumed inside it. File
+	 * and cache calls use this directly and do not take rate-limit tokens.
+	 */
+	public <T> T execute(ClientCallback<T> callback) throws Exception {
+		Client shared = acquire();
+		try {
+			return callback.doWithClient(shared);
+		} finally {
+			lastUsed = System.currentTimeMillis();
+			inFlight.decrementAndGet();
+		}
+	}
+
+	private Client acquire() {
+		lock.lock();
+		try {
+			if (client == null) {
+				client = buildClient();
+				created.increment();
+			} else {
+				reused.increment();
+			}
+			inFlight.incrementAndGet();
+			return client;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private Client buildClient() {
+		logger.info("Creating shared Gemini client (maxConnections={}, maxConnectionsPerHost={})", maxConnections,
+				maxConnectionsPerHost);
+		Client.Builder builder = Client.builder().clientOptions(ClientOptions.builder()
+				.maxConnections(maxConnections).maxConnectionsPerHost(maxConnectionsPerHost).build());
+		if (timeoutMs > 0) {
+			builder.httpOptions(HttpOptions.builder().timeout(timeoutMs).build());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Close the shared client when nobody has used it for the idle timeout.
+	 */
+	@Scheduled(fixedDelayString = "${gemini.client.eviction-interval-ms:60000}")
+	public void evictIdle() {
+		lock.lock();
+		try {
+			if (client != null && inFlight.get() == 0
+					&& System.currentTimeMillis() - lastUsed > idleTimeoutMs) {
+				logger.info("Closing idle Gemini client");
+				closeClient();
+				evictions.increment();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		lock.lock();
+		try {
+			closeClient();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void closeClient() {
+		if (client != null) {
+			try {
+				client.close();
+			} catch (Exception e) {
+				logger.warn("Failed to close Gemini client: {}", e.getMessage());
+			}
+			client = null;
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.WebVipers.gemini.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.genai.types.CachedContent;
+import com.google.genai.types.Content;
+import com.google.genai.types.CreateCachedContentConfig;
+
+/**
+ * Context caching through the Gemini caches API.
+ */
+@Component
+@ConditionalOnProperty(name = "gemini.context-cache.provider", havingValue = "gemini", matchIfMissing = true)
+public class GeminiContextCacheProvider implements ContextCacheProvider {
+
+	@Autowired
+	private GeminiClientProvider geminiClientProvider;
+
+	@Override
+	public String create(String model, String displayName, Content content, Duration ttl) throws Exception {
+		CreateCachedContentConfig config = CreateCachedContentConfig.builder().displayName(displayName)
+				.contents(content).ttl(ttl).build();
+		CachedContent cached = geminiClientProvider.execute(client -> client.caches.create(model, config));
+		return cached.name().orElseThrow(() -> new IllegalStateException("Gemini returned a cache without a name"));
+	}
+
+	@Override
+	public void delete(String handle) throws Exception {
+		geminiClientProvider.execute(client -> client.caches.delete(handle, null));
+	}
+
+}
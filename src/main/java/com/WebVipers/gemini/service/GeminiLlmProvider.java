@@ -0,0 +1,175 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.WebVipers.gemini.model.LlmAttachment;
+import com.WebVipers.gemini.model.LlmRequest;
+import com.WebVipers.gemini.model.LlmResponse;
+import com.google.genai.ResponseStream;
+import com.google.genai.types.Content;
+import com.google.genai.types.File;
+import com.google.genai.types.FileState;
+import com.google.genai.types.GenerateContentConfig;
+import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.types.GenerateContentResponseUsageMetadata;
+import com.google.genai.types.Part;
+import com.google.genai.types.Schema;
+import com.google.genai.types.UploadFileConfig;
+
+/**
+ * Gemini backend on top of the shared client from
+ * {@link GeminiClientProvider}.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "gemini", matchIfMissing = true)
+public class GeminiLlmProvider implements LlmProvider {
+
+	@Value("${gemini.files.poll-interval-ms:1000}")
+	private long filePollIntervalMs;
+
+	@Value("${gemini.files.processing-timeout-ms:120000}")
+	private long fileProcessingTimeoutMs;
+
+	@Autowired
+	private GeminiClientProvider geminiClientProvider;
+
+	@Override
+	public LlmResponse generate(LlmRequest request) throws Exception {
+		Content content = contentOf(request);
+		GenerateContentConfig config = configOf(request);
+		long start = System.nanoTime();
+		AtomicLong sent = new AtomicLong();
+		GenerateContentResponse response = geminiClientProvider.executeGeneration(client -> {
+			sent.set(System.nanoTime());
+			return client.models.generateContent(request.getModel(), content, config);
+		});
+		LlmResponse result = new LlmResponse(response.text());
+		result.setQueuedNanos(sent.get() - start);
+		response.usageMetadata().ifPresent(usage -> addTokens(result.getTokens(), usage));
+		return result;
+	}
+
+	@Override
+	public LlmResponse stream(LlmRequest request, ChunkHandler handler) throws Exception {
+		Content content = contentOf(request);
+		GenerateContentConfig config = configOf(request);
+		StringBuilder text = new StringBuilder();
+		LlmResponse result = new LlmResponse();
+		long start = System.nanoTime();
+		geminiClientProvider.executeGeneration(client -> {
+			result.setQueuedNanos(System.nanoTime() - start);
+			try (ResponseStream<GenerateContentResponse> stream = client.models
+					.generateContentStream(request.getModel(), content, config)) {
+				for (GenerateContentResponse chunk : stream) {
+					// usage metadata of a streamed response arrives with the final chunk
+					chunk.usageMetadata().ifPresent(usage -> addTokens(result.getTokens(), usage));
+					String chunkText = chunk.text();
+					if (chunkText == null || chunkText.isEmpty()) {
+						continue;
+					}
+					handler.onChunk(chunkText);
+					text.append(chunkText);
+				}
+			}
+			return null;
+		});
+		result.setText(text.toString());
+		return result;
+	}
+
+	@Override
+	public boolean supportsContextCache() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsFileUpload() {
+		return true;
+	}
+
+	/**
+	 * Upload through the Files API, which sends the stream in chunks, then
+	 * wait until Gemini has finished processing the file.
+	 */
+	@Override
+	public LlmAttachment upload(InputStream content, long size, String mimeType, String displayName)
+			throws Exception {
+		UploadFileConfig config = UploadFileConfig.builder().mimeType(mimeType).displayName(displayName).build();
+		File file = geminiClientProvider.execute(client -> client.files.upload(content, size, config));
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fileProcessingTimeoutMs);
+		while (stateOf(file) == FileState.Known.PROCESSING) {
+			if (System.nanoTime() > deadline) {
+				throw new IOException("Gemini is still processing uploaded file " + displayName);
+			}
+			TimeUnit.MILLISECONDS.sleep(filePollIntervalMs);
+			String name = file.name().orElseThrow();
+			file = geminiClientProvider.execute(client -> client.files.get(name, null));
+		}
+		if (stateOf(file) == FileState.Known.FAILED) {
+			throw new IOException("Gemini could not process uploaded file " + displayName);
+		}
+		LlmAttachment attachment = new LlmAttachment();
+		attachment.setDisplayName(displayName);
+		attachment.setMimeType(file.mimeType().orElse(mimeType));
+		attachment.setSize(size);
+		attachment.setFileUri(file.uri().orElseThrow());
+		attachment.setFileName(file.name().orElseThrow());
+		return attachment;
+	}
+
+	@Override
+	public void deleteUpload(LlmAttachment attachment) throws Exception {
+		geminiClientProvider.execute(client -> client.files.delete(attachment.getFileName(), null));
+	}
+
+	private static FileState.Known stateOf(File file) {
+		return file.state().map(FileState::knownEnum).orElse(FileState.Known.STATE_UNSPECIFIED);
+	}
+
+	private static Content contentOf(LlmRequest request) {
+		List<Part> parts = new ArrayList<>();
+		parts.add(Part.fromText(request.getPrompt()));
+		if (request.getAttachment() != null) {
+			parts.add(Part.fromBytes(request.getAttachment(), request.getAttachmentMimeType()));
+		}
+		for (LlmAttachment attachment : request.getAttachments()) {
+			parts.add(attachment.isUploaded() ? Part.fromUri(attachment.getFileUri(), attachment.getMimeType())
+					: Part.fromBytes(attachment.getData(), attachment.getMimeType()));
+		}
+		return Content.fromParts(parts.toArray(Part[]::new));
+	}
+
+	private static GenerateContentConfig configOf(LlmRequest request) {
+		if (request.getCachedContext() == null && request.getResponseSchema() == null) {
+			return null;
+		}
+		GenerateContentConfig.Builder config = GenerateContentConfig.builder();
+		if (request.getCachedContext() != null) {
+			config.cachedContent(request.getCachedContext());
+		}
+		if (request.getResponseSchema() != null) {
+			config.responseMimeType("application/json").responseSchema(Schema.fromJson(request.getResponseSchema()));
+		}
+		return config.build();
+	}
+
+	private static void addTokens(Map<String, Integer> tokens, GenerateContentResponseUsageMetadata usage) {
+		tokens.clear();
+		usage.promptTokenCount().ifPresent(count -> tokens.put("prompt", count));
+		usage.candidatesTokenCount().ifPresent(count -> tokens.put("candidates", count));
+		usage.cachedContentTokenCount().ifPresent(count -> tokens.put("cached", count));
+		usage.thoughtsTokenCount().ifPresent(count -> tokens.put("thoughts", count));
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.WebVipers.gemini.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Token bucket sized to the Gemini requests-per-minute quota. Every generate
+ * or stream call takes a token; callers wait when the bucket is empty
+ * instead of running into 429 responses. A rate of zero disables the limiter.
+ */
+@Component
+public class GeminiRateLimiter {
+
+	private final double tokensPerNano;
+
+	private final double capacity;
+
+	private final ReentrantLock lock = new ReentrantLock(true);
+
+	private final Condition refilled = lock.newCondition();
+
+	private final Timer waitTimer;
+
+	private double tokens;
+
+	private long lastRefill = System.nanoTime();
+
+	public GeminiRateLimiter(MeterRegistry meterRegistry,
+			@Value("${gemini.rate-limit.requests-per-minute:60}") int requestsPerMinute,
+			@Value("${gemini.rate-limit.burst:10}") int burst) {
+		this.tokensPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+		this.capacity = Math.max(1, burst);
+		this.tokens = capacity;
+		this.waitTimer = Timer.builder("gemini.rate-limit.wait")
+				.description("Time model calls waited for a rate-limit token").register(meterRegistry);
+	}
+
+	/**
+	 * Take one token, waiting until one is available.
+	 */
+	public void acquire() throws InterruptedException {
+		if (tokensPerNano == 0) {
+			return;
+		}
+		long start = System.nanoTime();
+		lock.lock();
+		try {
+			while (true) {
+				refill();
+				if (tokens >= 1) {
+					tokens -= 1;
+					break;
+				}
+				long waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+				refilled.awaitNanos(waitNanos);
+			}
+		} finally {
+			lock.unlock();
+		}
+		waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+		lastRefill = now;
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.WebVipers.gemini.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Groups pushes to the same repository into a single network push. Only one
+ * push per repository runs at a time, as the repository's single writer. A
+ * request for an idle repository is pushed straight away; requests that
+ * arrive while a push is running join one batch, which goes out as soon as
+ * that push ends. Every caller receives the outcome of the push it joined.
+ */
+@Service
+public class GitPushCoalescer implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(GitPushCoalescer.class);
+
+	private static final class Batch {
+		private final String remoteUrl;
+		private final List<CompletableFuture<String>> waiters = new ArrayList<>();
+
+		private Batch(String remoteUrl) {
+			this.remoteUrl = remoteUrl;
+		}
+	}
+
+	@Autowired
+	@Lazy
+	private GitService gitService;
+
+	@Autowired
+	private RepositoryWorkScheduler repositoryWorkScheduler;
+
+	private final Map<String, Batch> pending = new ConcurrentHashMap<>();
+
+	// repositories with a push running, guarded by lock; pending holds the batch queued behind it
+	private final Set<String> flushing = new HashSet<>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final ExecutorService executor;
+
+	private final DistributionSummary batchSize;
+
+	private final Timer pushLatency;
+
+	public GitPushCoalescer(MeterRegistry meterRegistry,
+			@Value("${git.push.coalesce.threads:2}") int threads) {
+		AtomicInteger count = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "git-push-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.batchSize = DistributionSummary.builder("git.push.batch.size")
+				.description("Commits published by a single coalesced push").register(meterRegistry);
+		this.pushLatency = Timer.builder("git.push.latency").description("Duration of coalesced git pushes")
+				.publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+	}
+
+	/**
+	 * Push the repository, or join the batch waiting behind a running push,
+	 * and wait for the outcome.
+	 * The commit to publish must already exist when this is called.
+	 */
+	public String push(String repositoryPath, String remoteUrl) throws GitAPIException {
+		try {
+			return requestPush(repositoryPath, remoteUrl).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GitAPIException("Interrupted while waiting for push", e) {
+			};
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof GitAPIException gitException) {
+				throw gitException;
+			}
+			throw new GitAPIException("Push failed: " + cause.getMessage(), cause) {
+			};
+		}
+	}
+
+	public CompletableFuture<String> requestPush(String repositoryPath, String remoteUrl) {
+		CompletableFuture<String> outcome = new CompletableFuture<>();
+		// the same repository reached through another spelling of its path still shares a batch
+		String key = RepositoryWorkScheduler.normalize(repositoryPath).toString();
+		lock.lock();
+		try {
+			Batch batch = pending.computeIfAbsent(key, path -> new Batch(remoteUrl));
+			batch.waiters.add(outcome);
+			if (!flushing.contains(key)) {
+				dispatch(key, batch);
+			}
+		} finally {
+			lock.unlock();
+		}
+		return outcome;
+	}
+
+	/**
+	 * Start pushing the batch. Called with the lock held while the repository
+	 * has no push running.
+	 */
+	private void dispatch(String key, Batch batch) {
+		pending.remove(key, batch);
+		flushing.add(key);
+		try {
+			executor.execute(() -> flush(key, batch));
+		} catch (RuntimeException e) {
+			flushing.remove(key);
+			batch.waiters.forEach(waiter -> waiter.completeExceptionally(e));
+		}
+	}
+
+	private void flush(String key, Batch batch) {
+		batchSize.record(batch.waiters.size());
+		logger.info("Pushing {} coalesced commit(s) for {}", batch.waiters.size(), key);
+		long start = System.nanoTime();
+		try {
+			String result = repositoryWorkScheduler.execute(key, () -> gitService.push(key, batch.remoteUrl));
+			batch.waiters.forEach(waiter -> waiter.complete(result));
+		} catch (Exception e) {
+			batch.waiters.forEach(waiter -> waiter.completeExceptionally(e));
+		} finally {
+			pushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			lock.lock();
+			try {
+				flushing.remove(key);
+				Batch next = pending.get(key);
+				if (next != null) {
+					dispatch(key, next);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+
+}
@@ -3,19 +3,40 @@ package com.WebVipers.gemini.service;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.PushCommand;
 import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import com.WebVipers.gemini.model.PipelineStage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * JGit operations on the generated repositories. Created on first use, so
+ * JGit is not loaded at startup.
+ */
 @Service
+@Lazy
 public class GitService {
 
     private static final Logger logger = LoggerFactory.getLogger(GitService.class);
@@ -29,12 +50,24 @@ public class GitService {
     @Value("${git.branch}")
     private String branch;
 
-    @Value("${git.user.name")
+    @Value("${git.user.name}")
     private String gitUserName;
 
     @Value("${git.user.email}")
     private String gitUserEmail;
 
+    @Autowired
+    private RepositoryHandleCache repositoryHandles;
+
+    @Autowired
+    private RepositoryMaintenance maintenance;
+
+    private final MeterRegistry meterRegistry;
+
+    public GitService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     /**
      * Initialize a Git repository if it doesn't exist
      * @throws URISyntaxException 
@@ -48,7 +81,8 @@ public class GitService {
 
         File gitDir = new File(repoDir, ".git");
         if (!gitDir.exists()) {
-            Git.init().setDirectory(repoDir).call();
+            Git.init().setDirectory(repoDir).call().close();
+            repositoryHandles.invalidate(repositoryPath);
             logger.info("Initialized new Git repository at: {}", repositoryPath);
             
             // Set remote if provided
@@ -77,7 +111,7 @@ public class GitService {
             return "No Git repository found at: " + repositoryPath;
         }
 
-        try (Git git = Git.open(repoDir)) {
+        try (Repository repository = repositoryHandles.acquire(repositoryPath); Git git = Git.wrap(repository)) {
             Status status = git.status().call();
             
             StringBuilder sb = new StringBuilder();
@@ -127,14 +161,41 @@ public class GitService {
             throw new IllegalStateException("No Git repository found at: " + repositoryPath);
         }
 
-        try (Git git = Git.open(repoDir)) {
-            if (pattern == null || pattern.isEmpty() || pattern.equals(".")) {
-                git.add().addFilepattern(".").call();
-                return "All files added to staging area";
-            } else {
-                git.add().addFilepattern(pattern).call();
-                return "Files matching '" + pattern + "' added to staging area";
-            }
+        try (Repository repository = repositoryHandles.acquire(repositoryPath); Git git = Git.wrap(repository)) {
+            stage(git, pattern);
+            return describeAdd(pattern);
+        }
+    }
+
+    /**
+     * Stage new, modified and deleted files in a single pass over the working tree
+     */
+    private DirCache stage(Git git, String pattern) throws GitAPIException {
+        String filePattern = pattern == null || pattern.isEmpty() ? "." : pattern;
+        return git.add().addFilepattern(filePattern).setAll(true).call();
+    }
+
+    private String describeAdd(String pattern) {
+        if (pattern == null || pattern.isEmpty() || pattern.equals(".")) {
+            return "All files added to staging area";
+        }
+        return "Files matching '" + pattern + "' added to staging area";
+    }
+
+    /**
+     * Whether the staged index differs from HEAD. Compares the tree the index
+     * produces with HEAD's tree, so no second working tree walk is needed; the
+     * tree objects written here are the ones the commit would write anyway.
+     */
+    private boolean hasStagedChanges(Repository repository, DirCache dirCache) throws IOException {
+        ObjectId head = repository.resolve("HEAD^{tree}");
+        if (head == null) {
+            return true;
+        }
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            ObjectId staged = dirCache.writeTree(inserter);
+            inserter.flush();
+            return !head.equals(staged);
         }
     }
 
@@ -148,22 +209,31 @@ public class GitService {
             throw new IllegalStateException("No Git repository found at: " + repositoryPath);
         }
 
-        try (Git git = Git.open(repoDir)) {
-            // Configure Git user identity
-            var config = git.getRepository().getConfig();
+        try (Repository repository = repositoryHandles.acquire(repositoryPath); Git git = Git.wrap(repository)) {
+            String result = commit(git, message);
+            maintenance.afterCommit(repositoryPath);
+            return result;
+        }
+    }
+
+    private String commit(Git git, String message) throws IOException, GitAPIException {
+        // Configure Git user identity, only rewriting the config when it changed
+        var config = git.getRepository().getConfig();
+        if (!Objects.equals(gitUserName, config.getString("user", null, "name"))
+                || !Objects.equals(gitUserEmail, config.getString("user", null, "email"))) {
             config.setString("user", null, "name", gitUserName);
             config.setString("user", null, "email", gitUserEmail);
             config.save();
-            
-            git.commit()
-                .setMessage(message)
-                .setAuthor(gitUserName, gitUserEmail)
-                .setCommitter(gitUserName, gitUserEmail)
-                .call();
-            
-            logger.info("Committed changes with message: {} (by {} <{}>)", message, gitUserName, gitUserEmail);
-            return "Successfully committed with message: " + message;
         }
+        
+        git.commit()
+            .setMessage(message)
+            .setAuthor(gitUserName, gitUserEmail)
+            .setCommitter(gitUserName, gitUserEmail)
+            .call();
+        
+        logger.info("Committed changes with message: {} (by {} <{}>)", message, gitUserName, gitUserEmail);
+        return "Successfully committed with message: " + message;
     }
 
     /**
@@ -188,7 +258,7 @@ public class GitService {
             return "ERROR: No password/token configured. Please set git.password in configuration";
         }
 
-        try (Git git = Git.open(repoDir)) {
+        try (Repository repository = repositoryHandles.acquire(repositoryPath); Git git = Git.wrap(repository)) {
             logger.info("Attempting to push to remote: {} as user: {}", remoteUrl, username);
             logger.info("Current branch: {}", git.getRepository().getBranch());
             
@@ -213,6 +283,7 @@ public class GitService {
             StringBuilder resultMsg = new StringBuilder();
             resultMsg.append("Push completed to: ").append(remoteUrl).append("\n");
             
+            List<String> failed = new ArrayList<>();
             pushResults.forEach(result -> {
                 logger.info("Push result for remote: {}", result.getRemoteUpdates());
                 result.getRemoteUpdates().forEach(update -> {
@@ -222,8 +293,17 @@ public class GitService {
                         update.getMessage());
                     resultMsg.append("  ").append(update.getRemoteName())
                            .append(": ").append(update.getStatus()).append("\n");
+                    // a rejected ref still comes back as a normal result, not an exception
+                    if (update.getStatus() != RemoteRefUpdate.Status.OK
+                            && update.getStatus() != RemoteRefUpdate.Status.UP_TO_DATE) {
+                        failed.add(update.getRemoteName() + " " + update.getStatus()
+                                + (update.getMessage() == null ? "" : " (" + update.getMessage() + ")"));
+                    }
                 });
             });
+            if (!failed.isEmpty()) {
+                throw new IllegalStateException("Remote rejected " + String.join(", ", failed));
+            }
             
             logger.info("Successfully pushed to remote: {}", remoteUrl);
             return resultMsg.toString();
@@ -238,6 +318,29 @@ public class GitService {
      * @throws URISyntaxException 
      */
     public String commitAndPush(String commitMessage, String filePattern,String repositoryPath, String remoteUrl) throws IOException, GitAPIException, URISyntaxException {
+        return commitAndPush(commitMessage, filePattern, repositoryPath, remoteUrl, PipelineListener.NONE);
+    }
+
+    /**
+     * Add, commit, and push, reporting the commit and push stages to the listener
+     * @throws URISyntaxException 
+     */
+    public String commitAndPush(String commitMessage, String filePattern,String repositoryPath, String remoteUrl, PipelineListener listener) throws IOException, GitAPIException, URISyntaxException {
+        StringBuilder result = new StringBuilder();
+        result.append(addAndCommit(commitMessage, filePattern, repositoryPath, remoteUrl, listener));
+        
+        // Push
+        listener.onStage(PipelineStage.PUSHING);
+        result.append(timed("push", () -> push(repositoryPath,remoteUrl))).append("\n");
+        
+        return result.toString();
+    }
+
+    /**
+     * Initialize if needed, then add and commit without pushing
+     * @throws URISyntaxException 
+     */
+    public String addAndCommit(String commitMessage, String filePattern,String repositoryPath, String remoteUrl, PipelineListener listener) throws IOException, GitAPIException, URISyntaxException {
         StringBuilder result = new StringBuilder();
         
         // Initialize if needed
@@ -246,18 +349,50 @@ public class GitService {
             result.append(initializeRepository(repositoryPath,remoteUrl)).append("\n");
         }
         
-        // Add files
-        result.append(addFiles(filePattern,repositoryPath)).append("\n");
-        
-        // Commit
-        result.append(commit(commitMessage,repositoryPath)).append("\n");
-        
-        // Push
-        result.append(push(repositoryPath,remoteUrl)).append("\n");
-        
-        
+        listener.onStage(PipelineStage.COMMITTING);
+        try (Repository repository = repositoryHandles.acquire(repositoryPath); Git git = Git.wrap(repository)) {
+            // Add files, keeping the index the add produced for the status check
+            DirCache[] staged = new DirCache[1];
+            result.append(timed("add", () -> {
+                staged[0] = stage(git, filePattern);
+                return describeAdd(filePattern);
+            })).append("\n");
+            
+            if (!hasStagedChanges(repository, staged[0])) {
+                logger.info("Nothing to commit in {}", repositoryPath);
+                return result.append("Nothing to commit, working tree clean\n").toString();
+            }
+            
+            // Commit
+            result.append(timed("commit", () -> commit(git, commitMessage))).append("\n");
+        }
+        maintenance.afterCommit(repositoryPath);
         
         return result.toString();
     }
 
+    @FunctionalInterface
+    private interface GitOperation {
+        String run() throws IOException, GitAPIException;
+    }
+
+    /**
+     * Run a git step and record its duration, tagged by operation and outcome
+     */
+    private String timed(String operation, GitOperation gitOperation) throws IOException, GitAPIException {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            String result = gitOperation.run();
+            outcome = "success";
+            return result;
+        } finally {
+            Timer.builder("git.operation")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
 }
@@ -0,0 +1,183 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Brings a working tree in line with a freshly generated directory while
+ * touching as little as possible: identical files are left alone (keeping
+ * their timestamps, so git does not rehash them), changed and new files are
+ * moved in, and files that were not generated again are deleted. Anything
+ * whose path has a part starting with .git (the repository itself,
+ * .gitignore, .gitattributes, .github/) is never deleted, and neither is the
+ * staging area the source sits in when it is inside the target. Those
+ * directories are not even entered, so the cost follows the size of the
+ * generated tree rather than the repository's history. A file that replaces
+ * a directory, or a directory that replaces a file, has the old node removed
+ * first.
+ */
+public final class IncrementalDirectorySync {
+
+	/**
+	 * scanned counts the working tree entries looked at for deletion.
+	 */
+	public record Result(int written, int unchanged, int deleted, int scanned) {
+	}
+
+	private IncrementalDirectorySync() {
+	}
+
+	public static Result sync(Path source, Path target) throws IOException {
+		Files.createDirectories(target);
+		Set<Path> generated = new HashSet<>();
+		List<Path> sourceFiles = new ArrayList<>();
+		try (var stream = Files.walk(source)) {
+			stream.filter(Files::isRegularFile).forEach(sourceFiles::add);
+		}
+
+		int written = 0;
+		int unchanged = 0;
+		for (Path file : sourceFiles) {
+			Path relative = source.relativize(file);
+			generated.add(relative);
+			Path destination = target.resolve(relative.toString());
+			if (isSame(file, destination)) {
+				unchanged++;
+				continue;
+			}
+			clearWay(target, destination);
+			Files.createDirectories(destination.getParent());
+			move(file, destination);
+			written++;
+		}
+
+		Pruner pruner = new Pruner(target, source.toAbsolutePath().normalize().getParent(), generated);
+		Files.walkFileTree(target, pruner);
+		return new Result(written, unchanged, pruner.deleted, pruner.scanned);
+	}
+
+	private static boolean isKept(Path name) {
+		return name != null && name.toString().startsWith(".git");
+	}
+
+	/**
+	 * Deletes the files that were not generated again, and directories left
+	 * empty, without descending into kept directories.
+	 */
+	private static final class Pruner extends SimpleFileVisitor<Path> {
+
+		private final Path target;
+
+		private final Path stagingRoot;
+
+		private final Set<Path> generated;
+
+		private int deleted;
+
+		private int scanned;
+
+		private Pruner(Path target, Path stagingRoot, Set<Path> generated) {
+			this.target = target;
+			this.stagingRoot = stagingRoot;
+			this.generated = generated;
+		}
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+			if (directory.equals(target)) {
+				return FileVisitResult.CONTINUE;
+			}
+			scanned++;
+			if (isKept(directory.getFileName()) || directory.toAbsolutePath().normalize().equals(stagingRoot)) {
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+			scanned++;
+			if (!isKept(file.getFileName()) && !generated.contains(target.relativize(file))) {
+				Files.delete(file);
+				deleted++;
+			}
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path directory, IOException failure) throws IOException {
+			if (failure != null) {
+				throw failure;
+			}
+			if (!directory.equals(target)) {
+				try (var entries = Files.list(directory)) {
+					if (entries.findAny().isEmpty()) {
+						Files.delete(directory);
+					}
+				}
+			}
+			return FileVisitResult.CONTINUE;
+		}
+	}
+
+	/**
+	 * Remove whatever stands where the file has to go: a file in place of
+	 * one of its parent directories, or a directory in place of the file.
+	 */
+	private static void clearWay(Path target, Path destination) throws IOException {
+		for (Path parent = destination.getParent(); parent != null && !parent.equals(target)
+				&& parent.startsWith(target); parent = parent.getParent()) {
+			if (Files.exists(parent, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(parent)) {
+				Files.delete(parent);
+				break;
+			}
+		}
+		if (Files.isDirectory(destination, LinkOption.NOFOLLOW_LINKS)) {
+			deleteTree(destination);
+		}
+	}
+
+	/**
+	 * Delete a directory and everything below it.
+	 */
+	static void deleteTree(Path directory) throws IOException {
+		List<Path> paths;
+		try (var stream = Files.walk(directory)) {
+			paths = stream.sorted(Comparator.reverseOrder()).toList();
+		}
+		for (Path path : paths) {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Cheap size check first, then a byte comparison only when sizes match.
+	 */
+	private static boolean isSame(Path file, Path destination) throws IOException {
+		if (!Files.isRegularFile(destination) || Files.size(file) != Files.size(destination)) {
+			return false;
+		}
+		return Files.mismatch(file, destination) == -1L;
+	}
+
+	private static void move(Path source, Path destination) throws IOException {
+		try {
+			Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
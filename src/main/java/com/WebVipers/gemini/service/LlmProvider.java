@@ -0,0 +1,61 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.WebVipers.gemini.model.LlmAttachment;
+import com.WebVipers.gemini.model.LlmRequest;
+import com.WebVipers.gemini.model.LlmResponse;
+
+/**
+ * A backend that turns prompts into model output. Selected with
+ * llm.provider; the pipeline talks to it through {@link LlmService}.
+ */
+public interface LlmProvider {
+
+	@FunctionalInterface
+	interface ChunkHandler {
+		void onChunk(String text) throws IOException;
+	}
+
+	LlmResponse generate(LlmRequest request) throws Exception;
+
+	/**
+	 * Generate while handing each piece of text to the handler as it
+	 * arrives. The returned response holds the full text.
+	 */
+	LlmResponse stream(LlmRequest request, ChunkHandler handler) throws Exception;
+
+	/**
+	 * Whether requests may carry a {@link ContextCacheService} handle instead
+	 * of the attachment itself.
+	 */
+	default boolean supportsContextCache() {
+		return false;
+	}
+
+	/**
+	 * Whether large attachments can be uploaded with {@link #upload} and
+	 * referenced from requests instead of being sent inline. When false,
+	 * upload is never called and files too large to inline are refused with
+	 * {@link AttachmentTooLargeException}.
+	 */
+	default boolean supportsFileUpload() {
+		return false;
+	}
+
+	/**
+	 * Stream size bytes of content into the backend's file store. The stream
+	 * is read to the end and closed; the returned attachment references the
+	 * stored file and has no data. Only called when
+	 * {@link #supportsFileUpload} is true.
+	 */
+	LlmAttachment upload(InputStream content, long size, String mimeType, String displayName) throws Exception;
+
+	/**
+	 * Remove a file stored by {@link #upload} once no request needs it.
+	 */
+	default void deleteUpload(LlmAttachment attachment) throws Exception {
+	}
+
+}
@@ -0,0 +1,233 @@
+package com.WebVipers.gemini.service;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.WebVipers.gemini.config.ExecutorConfig;
+import com.WebVipers.gemini.model.LlmAttachment;
+import com.WebVipers.gemini.model.LlmRequest;
+import com.WebVipers.gemini.model.LlmResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Front for the configured {@link LlmProvider}. With llm.hedge.enabled a
+ * generate call that has not answered within the recent p95 latency is
+ * sent a second time and the first successful answer wins; the other call
+ * is cancelled. Streaming calls are never hedged because their chunks are
+ * written out as they arrive. Latencies are measured from when the call was
+ * sent, so time spent waiting for a rate-limit token does not raise the
+ * hedge delay.
+ */
+@Service
+public class LlmService implements DisposableBean {
+
+	private static final int WINDOW_SIZE = 256;
+
+	private final class Attempt {
+		private final CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+		private final Future<?> task;
+
+		private Attempt(LlmRequest request) {
+			task = executor.submit(() -> {
+				try {
+					result.complete(timedGenerate(request));
+				} catch (Throwable e) {
+					result.completeExceptionally(e);
+				}
+			});
+		}
+
+		private void cancel() {
+			task.cancel(true);
+		}
+	}
+
+	@Value("${llm.hedge.enabled:false}")
+	private boolean hedgeEnabled;
+
+	@Value("${llm.hedge.percentile:0.95}")
+	private double hedgePercentile;
+
+	@Value("${llm.hedge.min-delay-ms:500}")
+	private long minHedgeDelayMs;
+
+	@Value("${llm.hedge.min-samples:20}")
+	private int minSamples;
+
+	@Autowired
+	private LlmProvider provider;
+
+	private final ExecutorService executor;
+
+	private final ReentrantLock windowLock = new ReentrantLock();
+
+	private final long[] window = new long[WINDOW_SIZE];
+
+	private int samples;
+
+	private int next;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Counter hedgesFired;
+
+	private final Counter hedgesWon;
+
+	public LlmService(MeterRegistry meterRegistry,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+		this.meterRegistry = meterRegistry;
+		this.executor = Executors.newCachedThreadPool(ExecutorConfig.threadFactory("llm-hedge-", virtualThreads));
+		this.hedgesFired = Counter.builder("llm.hedge.fired").description("Generate calls sent a second time")
+				.register(meterRegistry);
+		this.hedgesWon = Counter.builder("llm.hedge.won").description("Hedged calls that answered first")
+				.register(meterRegistry);
+	}
+
+	public LlmResponse generate(LlmRequest request) throws Exception {
+		if (!hedgeEnabled) {
+			return timedGenerate(request);
+		}
+		long delayMs = hedgeDelayMs();
+		Attempt primary = new Attempt(request);
+		try {
+			return primary.result.get(delayMs, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// slower than usual, fall through and hedge
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+		hedgesFired.increment();
+		Attempt hedge = new Attempt(request);
+		try {
+			LlmResponse response = firstSuccessful(primary.result, hedge.result).get();
+			if (hedge.result.isDone() && !hedge.result.isCompletedExceptionally() && hedge.result.join() == response) {
+				hedgesWon.increment();
+			}
+			return response;
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		} finally {
+			primary.cancel();
+			hedge.cancel();
+		}
+	}
+
+	public LlmResponse stream(LlmRequest request, LlmProvider.ChunkHandler handler) throws Exception {
+		long start = System.nanoTime();
+		LlmResponse response = provider.stream(request, handler);
+		timer("stream").record(System.nanoTime() - start - response.getQueuedNanos(), TimeUnit.NANOSECONDS);
+		return response;
+	}
+
+	public boolean supportsContextCache() {
+		return provider.supportsContextCache();
+	}
+
+	public boolean supportsFileUpload() {
+		return provider.supportsFileUpload();
+	}
+
+	public LlmAttachment upload(InputStream content, long size, String mimeType, String displayName)
+			throws Exception {
+		long start = System.nanoTime();
+		LlmAttachment attachment = provider.upload(content, size, mimeType, displayName);
+		timer("upload").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		return attachment;
+	}
+
+	public void deleteUpload(LlmAttachment attachment) throws Exception {
+		provider.deleteUpload(attachment);
+	}
+
+	private LlmResponse timedGenerate(LlmRequest request) throws Exception {
+		long start = System.nanoTime();
+		LlmResponse response = provider.generate(request);
+		long elapsed = System.nanoTime() - start - response.getQueuedNanos();
+		timer("generate").record(elapsed, TimeUnit.NANOSECONDS);
+		recordLatency(TimeUnit.NANOSECONDS.toMillis(elapsed));
+		return response;
+	}
+
+	private Timer timer(String mode) {
+		return Timer.builder("llm.call").tag("mode", mode).publishPercentiles(0.5, 0.95, 0.99)
+				.register(meterRegistry);
+	}
+
+	private void recordLatency(long millis) {
+		windowLock.lock();
+		try {
+			window[next] = millis;
+			next = (next + 1) % WINDOW_SIZE;
+			samples = Math.min(samples + 1, WINDOW_SIZE);
+		} finally {
+			windowLock.unlock();
+		}
+	}
+
+	/**
+	 * Configured percentile of the recent generate latencies, never below the
+	 * minimum delay. Until enough calls were seen the minimum delay is used.
+	 */
+	private long hedgeDelayMs() {
+		long[] recent;
+		windowLock.lock();
+		try {
+			if (samples < minSamples) {
+				return minHedgeDelayMs;
+			}
+			recent = Arrays.copyOf(window, samples);
+		} finally {
+			windowLock.unlock();
+		}
+		Arrays.sort(recent);
+		int index = (int) Math.ceil(hedgePercentile * recent.length) - 1;
+		return Math.max(minHedgeDelayMs, recent[Math.max(0, Math.min(index, recent.length - 1))]);
+	}
+
+	private static CompletableFuture<LlmResponse> firstSuccessful(CompletableFuture<LlmResponse> first,
+			CompletableFuture<LlmResponse> second) {
+		CompletableFuture<LlmResponse> winner = new CompletableFuture<>();
+		AtomicInteger failures = new AtomicInteger();
+		for (CompletableFuture<LlmResponse> attempt : Arrays.asList(first, second)) {
+			attempt.whenComplete((response, error) -> {
+				if (error == null) {
+					winner.complete(response);
+				} else if (failures.incrementAndGet() == 2) {
+					winner.completeExceptionally(error);
+				}
+			});
+		}
+		return winner;
+	}
+
+	private static Exception unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof ExecutionException nested) {
+			cause = nested.getCause();
+		}
+		return cause instanceof Exception exception ? exception : e;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+}
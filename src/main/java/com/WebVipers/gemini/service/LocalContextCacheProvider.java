@@ -0,0 +1,61 @@
+package com.WebVipers.gemini.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.genai.types.Content;
+
+/**
+ * In-memory stand-in for the Gemini caches API, selected with
+ * gemini.context-cache.provider=local, so cache registration and refresh
+ * can be exercised offline. Its handles only mean something to the stub
+ * backend, which resolves them here, so it refuses to start with any other
+ * llm.provider.
+ */
+@Component
+@ConditionalOnProperty(name = "gemini.context-cache.provider", havingValue = "local")
+public class LocalContextCacheProvider implements ContextCacheProvider, InitializingBean {
+
+	@Value("${llm.provider:gemini}")
+	private String llmProvider;
+
+	private final Map<String, Content> contexts = new ConcurrentHashMap<>();
+
+	private final AtomicInteger sequence = new AtomicInteger();
+
+	@Override
+	public void afterPropertiesSet() {
+		if (!"stub".equals(llmProvider)) {
+			throw new IllegalStateException("gemini.context-cache.provider=local only works with llm.provider=stub, not "
+					+ llmProvider);
+		}
+	}
+
+	@Override
+	public String create(String model, String displayName, Content content, Duration ttl) {
+		String handle = "cachedContents/local-" + sequence.incrementAndGet();
+		contexts.put(handle, content);
+		return handle;
+	}
+
+	@Override
+	public void delete(String handle) {
+		contexts.remove(handle);
+	}
+
+	/**
+	 * The content registered under the handle, or null when it was deleted
+	 * or never created.
+	 */
+	public Content get(String handle) {
+		return contexts.get(handle);
+	}
+
+}
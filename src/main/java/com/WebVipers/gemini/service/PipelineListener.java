@@ -0,0 +1,24 @@
+package com.WebVipers.gemini.service;
+
+import com.WebVipers.gemini.model.PipelineStage;
+
+/**
+ * Receives the stage transitions of a scaffold/spec request as it runs.
+ */
+@FunctionalInterface
+public interface PipelineListener {
+
+	PipelineListener NONE = stage -> {
+	};
+
+	void onStage(PipelineStage stage);
+
+	/**
+	 * Called from a background thread once the catalog registration that was
+	 * queued during {@link PipelineStage#REGISTERING} finished; error is null
+	 * on success. The request itself may already have completed.
+	 */
+	default void onRegistration(Throwable error) {
+	}
+
+}
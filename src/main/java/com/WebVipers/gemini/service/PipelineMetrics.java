@@ -0,0 +1,120 @@
+package com.WebVipers.gemini.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.WebVipers.gemini.model.LlmResponse;
+import com.WebVipers.gemini.model.PipelineStage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer instrumentation for the scaffold/spec pipeline: a timer per
+ * stage and per request tagged by agent and outcome, plus token counts and
+ * response sizes of the model calls.
+ */
+@Component
+public class PipelineMetrics {
+
+	public static final String OUTCOME_SUCCESS = "success";
+
+	public static final String OUTCOME_FAILURE = "failure";
+
+	private final MeterRegistry meterRegistry;
+
+	public PipelineMetrics(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Start timing a request. The returned timer is the request's
+	 * {@link PipelineListener}; call {@link StageTimer#finish} when it ends.
+	 */
+	public StageTimer start(String agent) {
+		return new StageTimer(agentTag(agent));
+	}
+
+	/**
+	 * The agent tag for a request, following
+	 * {@link GeminiApiService#normalizeAgent(String)}: only scaffold and spec
+	 * are used, so a caller cannot create new series through the agent
+	 * parameter.
+	 */
+	public static String agentTag(String agent) {
+		return GeminiApiService.normalizeAgent(agent).equals(GeminiApiService.SCAFFOLD) ? "scaffold" : "spec";
+	}
+
+	/**
+	 * Record token usage and response size of a model call.
+	 */
+	public void recordModelResponse(String agent, LlmResponse response) {
+		String tag = agentTag(agent);
+		String text = response.getText();
+		DistributionSummary.builder("gemini.response.size").baseUnit("chars").tag("agent", tag)
+				.register(meterRegistry).record(text == null ? 0 : text.length());
+		response.getTokens().forEach((type, count) -> Counter.builder("gemini.tokens").tag("agent", tag)
+				.tag("type", type).register(meterRegistry).increment(count));
+	}
+
+	public class StageTimer implements PipelineListener {
+
+		private final String agent;
+
+		private final long requestStart = System.nanoTime();
+
+		private final Map<String, Long> breakdown = new LinkedHashMap<>();
+
+		private PipelineStage current;
+
+		private long stageStart;
+
+		private StageTimer(String agent) {
+			this.agent = agent;
+		}
+
+		@Override
+		public void onStage(PipelineStage stage) {
+			long now = System.nanoTime();
+			closeCurrent(now, OUTCOME_SUCCESS);
+			current = stage;
+			stageStart = now;
+		}
+
+		/**
+		 * Close the running stage and record the whole request.
+		 */
+		public void finish(String outcome) {
+			long now = System.nanoTime();
+			closeCurrent(now, outcome);
+			current = null;
+			Timer.builder("pipeline.request").tag("agent", agent).tag("outcome", outcome)
+					.publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry)
+					.record(now - requestStart, TimeUnit.NANOSECONDS);
+			breakdown.put("total", TimeUnit.NANOSECONDS.toMillis(now - requestStart));
+		}
+
+		private void closeCurrent(long now, String outcome) {
+			if (current == null) {
+				return;
+			}
+			long elapsed = now - stageStart;
+			Timer.builder("pipeline.stage").tag("agent", agent).tag("stage", current.name().toLowerCase())
+					.tag("outcome", outcome).register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+			breakdown.merge(current.name().toLowerCase(), TimeUnit.NANOSECONDS.toMillis(elapsed), Long::sum);
+		}
+
+		/**
+		 * Milliseconds spent in each stage so far, in the order they ran.
+		 */
+		public Map<String, Long> getBreakdown() {
+			return new LinkedHashMap<>(breakdown);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.WebVipers.gemini.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An instruction file compiled once into literal segments and named
+ * {PLACEHOLDER} slots. Rendering only concatenates, so no regex or I/O runs
+ * per request. Placeholders without a value are left as written, which
+ * keeps text such as ${DB_PASSWORD} in the templates intact.
+ */
+public final class PromptTemplate {
+
+	private final String name;
+
+	private final String text;
+
+	private final byte[] bytes;
+
+	private final String digest;
+
+	private final String[] literals;
+
+	private final String[] placeholders;
+
+	private PromptTemplate(String name, String text, String[] literals, String[] placeholders) {
+		this.name = name;
+		this.text = text;
+		this.bytes = text.getBytes(StandardCharsets.UTF_8);
+		this.digest = sha256(bytes);
+		this.literals = literals;
+		this.placeholders = placeholders;
+	}
+
+	public static PromptTemplate compile(String name, String text) {
+		List<String> literals = new ArrayList<>();
+		List<String> placeholders = new ArrayList<>();
+		int literalStart = 0;
+		int open = text.indexOf('{');
+		while (open >= 0) {
+			int close = placeholderEnd(text, open);
+			if (close < 0) {
+				open = text.indexOf('{', open + 1);
+				continue;
+			}
+			literals.add(text.substring(literalStart, open));
+			placeholders.add(text.substring(open + 1, close));
+			literalStart = close + 1;
+			open = text.indexOf('{', literalStart);
+		}
+		literals.add(text.substring(literalStart));
+		return new PromptTemplate(name, text, literals.toArray(String[]::new), placeholders.toArray(String[]::new));
+	}
+
+	/**
+	 * Index of the closing brace when the text at open is {UPPER_SNAKE_CASE},
+	 * otherwise -1.
+	 */
+	private static int placeholderEnd(String text, int open) {
+		int i = open + 1;
+		if (i >= text.length() || text.charAt(i) < 'A' || text.charAt(i) > 'Z') {
+			return -1;
+		}
+		while (i < text.length()) {
+			char c = text.charAt(i);
+			if (c == '}') {
+				return i;
+			}
+			if (!(c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+				return -1;
+			}
+			i++;
+		}
+		return -1;
+	}
+
+	private static String sha256(byte[] bytes) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	public String render(Map<String, String> values) {
+		if (placeholders.length == 0) {
+			return text;
+		}
+		int size = text.length();
+		for (String value : values.values()) {
+			size += value.length();
+		}
+		StringBuilder rendered = new StringBuilder(size);
+		for (int i = 0; i < placeholders.length; i++) {
+			rendered.append(literals[i]);
+			String value = values.get(placeholders[i]);
+			if (value == null) {
+				rendered.append('{').append(placeholders[i]).append('}');
+			} else {
+				rendered.append(value);
+			}
+		}
+		rendered.append(literals[placeholders.length]);
+		return rendered.toString();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * SHA-256 of the template's UTF-8 bytes, hex encoded.
+	 */
+	public String getDigest() {
+		return digest;
+	}
+
+	/**
+	 * UTF-8 encoding of the template, copied so the compiled form stays
+	 * immutable.
+	 */
+	public byte[] getBytes() {
+		return bytes.clone();
+	}
+
+}
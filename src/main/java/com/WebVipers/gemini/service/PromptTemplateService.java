@@ -0,0 +1,132 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads and compiles the instruction files once at startup. When
+ * prompt.templates.directory is set, files found there override the
+ * classpath copies and are recompiled as soon as they change on disk.
+ */
+@Service
+public class PromptTemplateService implements InitializingBean, DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(PromptTemplateService.class);
+
+	public static final String INSTRUCTIONS = "Instructions.md";
+
+	public static final String INSTRUCTIONS_JSON = "Instructions-json.md";
+
+	public static final String INSTRUCTIONS_SPEC = "Instructions-spec.md";
+
+	public static final String AGENT_TEMPLATE = "Agent-template.md";
+
+	public static final String CATALOG_INFO = "catalog-info.yaml";
+
+	private static final List<String> TEMPLATES = List.of(INSTRUCTIONS, INSTRUCTIONS_JSON, INSTRUCTIONS_SPEC,
+			AGENT_TEMPLATE, CATALOG_INFO);
+
+	@Value("${prompt.templates.directory:}")
+	private String templatesDirectory;
+
+	private final Map<String, PromptTemplate> templates = new ConcurrentHashMap<>();
+
+	private WatchService watchService;
+
+	@Override
+	public void afterPropertiesSet() throws IOException {
+		for (String name : TEMPLATES) {
+			templates.put(name, load(name));
+		}
+		if (!templatesDirectory.isEmpty() && Files.isDirectory(Path.of(templatesDirectory))) {
+			watch(Path.of(templatesDirectory));
+		}
+	}
+
+	public PromptTemplate get(String name) {
+		PromptTemplate template = templates.get(name);
+		if (template == null) {
+			throw new IllegalArgumentException("Unknown prompt template " + name);
+		}
+		return template;
+	}
+
+	private PromptTemplate load(String name) throws IOException {
+		if (!templatesDirectory.isEmpty()) {
+			Path file = Path.of(templatesDirectory, name);
+			if (Files.isRegularFile(file)) {
+				return PromptTemplate.compile(name, Files.readString(file));
+			}
+		}
+		try (InputStream inputStream = new ClassPathResource(name).getInputStream()) {
+			return PromptTemplate.compile(name, new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+
+	private void watch(Path directory) throws IOException {
+		watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_DELETE);
+		Thread watcher = new Thread(() -> pollChanges(watchService), "prompt-template-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+		logger.info("Watching {} for prompt template changes", directory);
+	}
+
+	private void pollChanges(WatchService service) {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.context() instanceof Path changed && TEMPLATES.contains(changed.toString())) {
+						reload(changed.toString());
+					}
+				}
+				if (!key.reset()) {
+					logger.warn("Prompt template directory {} is no longer accessible", templatesDirectory);
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// shutting down
+		}
+	}
+
+	private void reload(String name) {
+		try {
+			templates.put(name, load(name));
+			logger.info("Reloaded prompt template {}", name);
+		} catch (IOException e) {
+			logger.warn("Keeping previous {} after failed reload: {}", name, e.getMessage());
+		}
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.WebVipers.gemini.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps JGit repositories open between operations so config, refs and the
+ * pack list are not re-read for every add, commit and push. Handles are
+ * reference counted: {@link #acquire} takes a reference the caller closes,
+ * and a handle idle for git.repository.idle-timeout-ms drops the cache's own
+ * reference, so it is really closed once the last caller is done with it.
+ * Created with {@link GitService} on first use.
+ */
+@Component
+@Lazy
+public class RepositoryHandleCache implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(RepositoryHandleCache.class);
+
+	private static final class Handle {
+		private final Repository repository;
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		private Handle(Repository repository) {
+			this.repository = repository;
+		}
+	}
+
+	@Value("${git.repository.idle-timeout-ms:600000}")
+	private long idleTimeoutMs;
+
+	private final Map<String, Handle> handles = new ConcurrentHashMap<>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Counter opened;
+
+	private final Counter reused;
+
+	public RepositoryHandleCache(MeterRegistry meterRegistry) {
+		this.opened = Counter.builder("git.repository.opened").description("Repositories opened from disk")
+				.register(meterRegistry);
+		this.reused = Counter.builder("git.repository.reused").description("Operations served by a cached handle")
+				.register(meterRegistry);
+		Gauge.builder("git.repository.handles", handles, Map::size).description("Open repository handles")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Open repository for a working tree. Close the returned repository when
+	 * done; that only releases this caller's reference.
+	 */
+	public Repository acquire(String repositoryPath) throws IOException {
+		String key = keyOf(repositoryPath);
+		lock.lock();
+		try {
+			Handle handle = handles.get(key);
+			if (handle == null) {
+				Repository repository = new FileRepositoryBuilder()
+						.setGitDir(new File(repositoryPath, ".git"))
+						.setMustExist(true)
+						.build();
+				handle = new Handle(repository);
+				handles.put(key, handle);
+				opened.increment();
+			} else {
+				reused.increment();
+			}
+			handle.lastUsed = System.currentTimeMillis();
+			handle.repository.incrementOpen();
+			return handle.repository;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Drop the cached handle of a repository, for example after it was
+	 * deleted or re-initialized on disk.
+	 */
+	public void invalidate(String repositoryPath) {
+		lock.lock();
+		try {
+			Handle handle = handles.remove(keyOf(repositoryPath));
+			if (handle != null) {
+				handle.repository.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${git.repository.eviction-interval-ms:60000}")
+	public void evictIdle() {
+		long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+		lock.lock();
+		try {
+			handles.entrySet().removeIf(entry -> {
+				if (entry.getValue().lastUsed >= cutoff) {
+					return false;
+				}
+				logger.debug("Closing idle repository handle {}", entry.getKey());
+				entry.getValue().repository.close();
+				return true;
+			});
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static String keyOf(String repositoryPath) {
+		return new File(repositoryPath).getAbsoluteFile().toPath().normalize().toString();
+	}
+
+	@Override
+	public void destroy() {
+		lock.lock();
+		try {
+			handles.values().forEach(handle -> handle.repository.close());
+			handles.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.WebVipers.gemini.service;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Packs generated repositories in the background. A commit schedules a check
+ * of its repository a little later, so a burst of commits leads to a single
+ * check; when the repository has more loose objects or packs than configured
+ * it is garbage collected as the repository's single writer, so the gc never
+ * races a promotion or commit.
+ */
+@Service
+@Lazy
+public class RepositoryMaintenance implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(RepositoryMaintenance.class);
+
+	@Value("${git.gc.enabled:true}")
+	private boolean enabled;
+
+	@Value("${git.gc.delay-ms:30000}")
+	private long delayMs;
+
+	@Value("${git.gc.min-interval-ms:600000}")
+	private long minIntervalMs;
+
+	@Value("${git.gc.loose-object-threshold:1000}")
+	private long looseObjectThreshold;
+
+	@Value("${git.gc.pack-threshold:20}")
+	private long packThreshold;
+
+	@Autowired
+	private RepositoryHandleCache repositoryHandles;
+
+	@Autowired
+	private RepositoryWorkScheduler repositoryWorkScheduler;
+
+	private final Map<String, Long> scheduled = new ConcurrentHashMap<>();
+
+	private final Map<String, Long> lastRun = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService executor;
+
+	private final Counter runs;
+
+	private final Timer duration;
+
+	public RepositoryMaintenance(MeterRegistry meterRegistry) {
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "git-maintenance");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		this.runs = Counter.builder("git.gc.runs").description("Background gc runs on generated repositories")
+				.register(meterRegistry);
+		this.duration = Timer.builder("git.gc.duration").description("Duration of background gc runs")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Note that a repository received a commit. Cheap; the check runs later on
+	 * the maintenance thread.
+	 */
+	public void afterCommit(String repositoryPath) {
+		if (!enabled) {
+			return;
+		}
+		String key = new File(repositoryPath).getAbsoluteFile().toPath().normalize().toString();
+		if (scheduled.putIfAbsent(key, System.currentTimeMillis()) != null) {
+			return;
+		}
+		executor.schedule(() -> {
+			scheduled.remove(key);
+			check(key);
+		}, delayMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void check(String repositoryPath) {
+		Long previous = lastRun.get(repositoryPath);
+		if (previous != null && System.currentTimeMillis() - previous < minIntervalMs) {
+			return;
+		}
+		try (Repository repository = repositoryHandles.acquire(repositoryPath); Git git = Git.wrap(repository)) {
+			Properties statistics = git.gc().getStatistics();
+			long looseObjects = number(statistics, "numberOfLooseObjects");
+			long packs = number(statistics, "numberOfPackFiles");
+			if (looseObjects < looseObjectThreshold && packs < packThreshold) {
+				return;
+			}
+			repositoryWorkScheduler.execute(repositoryPath, () -> {
+				long start = System.nanoTime();
+				git.gc().call();
+				duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				return null;
+			});
+			runs.increment();
+			lastRun.put(repositoryPath, System.currentTimeMillis());
+			logger.info("Packed {} ({} loose objects, {} packs)", repositoryPath, looseObjects, packs);
+		} catch (Exception e) {
+			logger.warn("Background gc of {} failed: {}", repositoryPath, e.getMessage());
+		}
+	}
+
+	private static long number(Properties statistics, String name) {
+		Object value = statistics.get(name);
+		return value instanceof Number number ? number.longValue() : 0;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,177 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Serializes work on each target repository directory while letting
+ * different targets run in parallel. Requests generate into their own staging
+ * directory and only take the target's queue to promote the staged files and
+ * commit them.
+ */
+@Service
+public class RepositoryWorkScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(RepositoryWorkScheduler.class);
+
+	@FunctionalInterface
+	public interface RepositoryWork<T> {
+		T run() throws Exception;
+	}
+
+	@Value("${pipeline.staging.directory:}")
+	private String stagingDirectory;
+
+	private final Map<Path, ReentrantLock> queues = new ConcurrentHashMap<>();
+
+	private final MeterRegistry meterRegistry;
+
+	public RepositoryWorkScheduler(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Run work as the single writer of the repository. Callers for the same
+	 * repository queue up in arrival order.
+	 */
+	public <T> T execute(String repositoryPath, RepositoryWork<T> work) throws Exception {
+		ReentrantLock queue = queues.computeIfAbsent(normalize(repositoryPath), this::newQueue);
+		queue.lock();
+		try {
+			return work.run();
+		} finally {
+			queue.unlock();
+		}
+	}
+
+	private ReentrantLock newQueue(Path repository) {
+		ReentrantLock queue = new ReentrantLock(true);
+		Gauge.builder("pipeline.repository.queue.depth", queue, ReentrantLock::getQueueLength)
+				.tag("repository", repository.getFileName() == null ? repository.toString()
+						: repository.getFileName().toString())
+				.description("Requests waiting to write to the repository").register(meterRegistry);
+		return queue;
+	}
+
+	/**
+	 * Create an empty, request-private staging directory for a repository. It
+	 * is placed next to the repository so promotion is a rename on the same
+	 * file system.
+	 */
+	public Path createStagingDirectory(String repositoryPath) throws IOException {
+		Path root = stagingDirectory.isEmpty() ? stagingRootFor(normalize(repositoryPath)) : Path.of(stagingDirectory);
+		return Files.createDirectories(root.resolve(UUID.randomUUID().toString()));
+	}
+
+	private Path stagingRootFor(Path repository) {
+		Path parent = repository.getParent() == null ? repository : repository.getParent();
+		return parent.resolve(".gemini-staging");
+	}
+
+	/**
+	 * Move the staged files into the repository. With replaceExisting the
+	 * working tree is made to match the staging directory incrementally:
+	 * unchanged files are kept, changed ones rewritten and stale ones deleted.
+	 * Must be called from inside {@link #execute}.
+	 *
+	 * Promotion is per file, not one atomic swap of the tree: the repository's
+	 * .git lives in the target, so the directory itself cannot be renamed over.
+	 * Each file is replaced by a rename, so no file is ever half written, but a
+	 * failure partway leaves a mix of the last commit and the new files. The
+	 * exception skips the commit, so the last commit stays intact, and the
+	 * next promotion under the same lock recovers the tree: a replaceExisting
+	 * promotion makes the whole tree match its staging directory again, and an
+	 * additive one moves its files in over whatever is left. A tree can also
+	 * be reset by hand to the last commit with git checkout and git clean.
+	 */
+	public void promote(Path staging, String repositoryPath, boolean replaceExisting) throws IOException {
+		Path target = normalize(repositoryPath);
+		if (replaceExisting) {
+			IncrementalDirectorySync.Result result = IncrementalDirectorySync.sync(staging, target);
+			logger.info("Synced {} into {}: {} written, {} unchanged, {} deleted, {} entries scanned", staging, target,
+					result.written(), result.unchanged(), result.deleted(), result.scanned());
+			return;
+		}
+		Files.createDirectories(target);
+		moveInto(staging, target);
+		logger.info("Promoted staged files from {} into {}", staging, target);
+	}
+
+	private void moveInto(Path source, Path target) throws IOException {
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(source)) {
+			for (Path entry : entries) {
+				Path destination = target.resolve(entry.getFileName().toString());
+				if (Files.isDirectory(entry) && Files.isDirectory(destination)) {
+					moveInto(entry, destination);
+					Files.delete(entry);
+				} else {
+					if (Files.isDirectory(destination, LinkOption.NOFOLLOW_LINKS)) {
+						// a file replaces a directory; a file in the way of a directory is replaced by the move
+						IncrementalDirectorySync.deleteTree(destination);
+					}
+					move(entry, destination);
+				}
+			}
+		}
+	}
+
+	private void move(Path source, Path destination) throws IOException {
+		try {
+			Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Remove a staging directory and whatever is left in it.
+	 */
+	public void discard(Path staging) {
+		if (staging == null || !Files.exists(staging)) {
+			return;
+		}
+		try (var stream = Files.walk(staging)) {
+			stream.sorted(Comparator.reverseOrder()).forEach(path -> {
+				try {
+					Files.delete(path);
+				} catch (IOException e) {
+					logger.warn("Failed to delete staged path {}: {}", path, e.getMessage());
+				}
+			});
+		} catch (IOException e) {
+			logger.warn("Failed to clean staging directory {}: {}", staging, e.getMessage());
+		}
+	}
+
+	/**
+	 * The key a repository is queued under: its real path when it exists, so
+	 * symlinked spellings of the same directory share one writer.
+	 */
+	static Path normalize(String repositoryPath) {
+		Path path = Path.of(repositoryPath).toAbsolutePath().normalize();
+		try {
+			return path.toRealPath();
+		} catch (IOException e) {
+			return path;
+		}
+	}
+
+}
@@ -0,0 +1,252 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache of model responses keyed by a hash of everything that goes into the
+ * request: model name, instruction file, final prompt and attached bytes.
+ * Entries live in a bounded in-memory LRU tier and, when a directory is
+ * configured, in an on-disk tier that survives restarts. The disk tier is
+ * swept periodically: expired files are deleted, then the oldest ones until
+ * it fits in gemini.cache.disk.max-bytes.
+ */
+@Service
+public class ResponseCacheService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ResponseCacheService.class);
+
+	private record Entry(String value, long createdAt) {
+	}
+
+	@Value("${gemini.cache.enabled:true}")
+	private boolean enabled;
+
+	@Value("${gemini.cache.max-entries:256}")
+	private int maxEntries;
+
+	@Value("${gemini.cache.ttl-ms:86400000}")
+	private long ttlMs;
+
+	@Value("${gemini.cache.disk.directory:}")
+	private String diskDirectory;
+
+	@Value("${gemini.cache.disk.max-bytes:268435456}")
+	private long maxDiskBytes;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final ReentrantLock sweepLock = new ReentrantLock();
+
+	// bytes on disk as of the last sweep plus what has been written since
+	private final AtomicLong diskBytes = new AtomicLong();
+
+	private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	private final Counter memoryHits;
+
+	private final Counter diskHits;
+
+	private final Counter misses;
+
+	private final Counter diskEvictions;
+
+	public ResponseCacheService(MeterRegistry meterRegistry) {
+		this.memoryHits = Counter.builder("gemini.response.cache.hits").tag("tier", "memory").register(meterRegistry);
+		this.diskHits = Counter.builder("gemini.response.cache.hits").tag("tier", "disk").register(meterRegistry);
+		this.misses = Counter.builder("gemini.response.cache.misses").register(meterRegistry);
+		this.diskEvictions = Counter.builder("gemini.response.cache.disk.evictions")
+				.description("Cached responses deleted from disk because they expired or the tier was full")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Build the cache key for a request.
+	 */
+	public String key(String model, String instructionFile, String prompt, byte[]... attachments) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			update(digest, model.getBytes(StandardCharsets.UTF_8));
+			update(digest, instructionFile.getBytes(StandardCharsets.UTF_8));
+			update(digest, prompt.getBytes(StandardCharsets.UTF_8));
+			for (byte[] attachment : attachments) {
+				update(digest, attachment);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	private static void update(MessageDigest digest, byte[] bytes) {
+		// length prefix keeps ("ab", "c") and ("a", "bc") apart
+		int length = bytes.length;
+		digest.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+		digest.update(bytes);
+	}
+
+	/**
+	 * Return the cached response for the key, or null on a miss.
+	 */
+	public String get(String key) {
+		if (!enabled) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		lock.lock();
+		try {
+			Entry entry = memory.get(key);
+			if (entry != null) {
+				if (now - entry.createdAt() <= ttlMs) {
+					memoryHits.increment();
+					return entry.value();
+				}
+				memory.remove(key);
+			}
+		} finally {
+			lock.unlock();
+		}
+		Entry entry = readDisk(key, now);
+		if (entry != null) {
+			diskHits.increment();
+			lock.lock();
+			try {
+				// keep the age of the file so the entry still expires on time
+				memory.put(key, entry);
+			} finally {
+				lock.unlock();
+			}
+			return entry.value();
+		}
+		misses.increment();
+		return null;
+	}
+
+	public void put(String key, String value) {
+		if (!enabled || value == null) {
+			return;
+		}
+		lock.lock();
+		try {
+			memory.put(key, new Entry(value, System.currentTimeMillis()));
+		} finally {
+			lock.unlock();
+		}
+		writeDisk(key, value);
+	}
+
+	private Entry readDisk(String key, long now) {
+		if (diskDirectory.isEmpty()) {
+			return null;
+		}
+		Path file = Path.of(diskDirectory, key);
+		try {
+			if (!Files.exists(file)) {
+				return null;
+			}
+			long createdAt = Files.getLastModifiedTime(file).toMillis();
+			if (now - createdAt > ttlMs) {
+				Files.deleteIfExists(file);
+				return null;
+			}
+			return new Entry(Files.readString(file), createdAt);
+		} catch (IOException e) {
+			logger.warn("Failed to read cached response {}: {}", file, e.getMessage());
+			return null;
+		}
+	}
+
+	private void writeDisk(String key, String value) {
+		if (diskDirectory.isEmpty()) {
+			return;
+		}
+		try {
+			Path directory = Files.createDirectories(Path.of(diskDirectory));
+			Path temp = Files.createTempFile(directory, key, ".tmp");
+			Files.writeString(temp, value);
+			Files.move(temp, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			if (diskBytes.addAndGet(Files.size(directory.resolve(key))) > maxDiskBytes) {
+				sweepDisk();
+			}
+		} catch (IOException e) {
+			logger.warn("Failed to write cached response {}: {}", key, e.getMessage());
+		}
+	}
+
+	/**
+	 * Delete expired files from the disk tier, then the oldest ones until it
+	 * is back under its size limit. Leftover temp files count as expired once
+	 * they are older than the TTL. Only one sweep runs at a time.
+	 */
+	@Scheduled(fixedDelayString = "${gemini.cache.disk.sweep-interval-ms:600000}")
+	public void sweepDisk() {
+		if (diskDirectory.isEmpty() || !Files.isDirectory(Path.of(diskDirectory)) || !sweepLock.tryLock()) {
+			return;
+		}
+		try {
+			long now = System.currentTimeMillis();
+			List<Path> files = new ArrayList<>();
+			Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+			try (Stream<Path> listing = Files.list(Path.of(diskDirectory))) {
+				listing.forEach(file -> {
+					try {
+						attributes.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+						files.add(file);
+					} catch (IOException e) {
+						// deleted by a concurrent read of an expired entry
+					}
+				});
+			}
+			files.sort(Comparator.comparingLong(file -> attributes.get(file).lastModifiedTime().toMillis()));
+			long total = files.stream().mapToLong(file -> attributes.get(file).size()).sum();
+			for (Path file : files) {
+				BasicFileAttributes attrs = attributes.get(file);
+				if (now - attrs.lastModifiedTime().toMillis() <= ttlMs && total <= maxDiskBytes) {
+					break;
+				}
+				if (Files.deleteIfExists(file)) {
+					diskEvictions.increment();
+				}
+				total -= attrs.size();
+			}
+			diskBytes.set(total);
+		} catch (IOException e) {
+			logger.warn("Failed to sweep cached responses in {}: {}", diskDirectory, e.getMessage());
+		} finally {
+			sweepLock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.WebVipers.gemini.model.PipelineStage;
+import com.WebVipers.gemini.model.ScaffoldJob;
+
+/**
+ * Runs scaffold/spec requests in the background and lets callers follow them
+ * by job id, either by polling or through a Server-Sent Events stream. An
+ * event stream ends once the job has finished and its Backstage
+ * registration, if one was started, has settled.
+ */
+@Service
+public class ScaffoldJobService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ScaffoldJobService.class);
+
+	private static final String REGISTRATION_PENDING = "PENDING";
+
+	private static final String REGISTRATION_DONE = "REGISTERED";
+
+	private static final String REGISTRATION_FAILED = "FAILED";
+
+	@Value("${pipeline.jobs.sse-timeout-ms:600000}")
+	private long sseTimeoutMs;
+
+	@Value("${pipeline.jobs.retention-ms:3600000}")
+	private long retentionMs;
+
+	@Autowired
+	private GeminiApiService geminiApiService;
+
+	@Autowired
+	private TaskExecutor pipelineExecutor;
+
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+
+	private final Map<String, ScaffoldJob> jobs = new ConcurrentHashMap<>();
+
+	private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+	private final ReentrantLock emitterLock = new ReentrantLock();
+
+	/**
+	 * Queue a request and return its job straight away. Throws
+	 * {@link org.springframework.core.task.TaskRejectedException} when the
+	 * executor queue is full.
+	 */
+	public ScaffoldJob submit(String prompt, String agent, boolean bypassCache) {
+		ScaffoldJob job = new ScaffoldJob(UUID.randomUUID().toString(), prompt, agent);
+		job.setBypassCache(bypassCache);
+		jobs.put(job.getId(), job);
+		try {
+			pipelineExecutor.execute(() -> run(job));
+		} catch (RuntimeException e) {
+			jobs.remove(job.getId());
+			throw e;
+		}
+		logger.info("Submitted job {} for agent {}", job.getId(), agent);
+		return job;
+	}
+
+	public ScaffoldJob getJob(String jobId) {
+		return jobs.get(jobId);
+	}
+
+	/**
+	 * Subscribe to the stage events of a job. The current stage is sent
+	 * immediately so late subscribers do not miss where the job is.
+	 */
+	public SseEmitter subscribe(ScaffoldJob job) {
+		SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+		emitterLock.lock();
+		try {
+			send(job, emitter, job.getStage());
+			if (job.getRegistration() != null && !REGISTRATION_PENDING.equals(job.getRegistration())) {
+				sendRegistration(job, emitter);
+			}
+			if (isSettled(job)) {
+				emitter.complete();
+				return emitter;
+			}
+			List<SseEmitter> jobEmitters = emitters.computeIfAbsent(job.getId(), id -> new CopyOnWriteArrayList<>());
+			jobEmitters.add(emitter);
+			emitter.onCompletion(() -> jobEmitters.remove(emitter));
+			emitter.onTimeout(() -> jobEmitters.remove(emitter));
+			emitter.onError(e -> jobEmitters.remove(emitter));
+		} finally {
+			emitterLock.unlock();
+		}
+		return emitter;
+	}
+
+	private void run(ScaffoldJob job) {
+		PipelineMetrics.StageTimer stageTimer = pipelineMetrics.start(job.getAgent());
+		try {
+			String result = geminiApiService.process(job.getPrompt(), job.getAgent(), job.isBypassCache(),
+					new PipelineListener() {
+						@Override
+						public void onStage(PipelineStage stage) {
+							stageTimer.onStage(stage);
+							if (stage == PipelineStage.REGISTERING) {
+								job.setRegistration(REGISTRATION_PENDING);
+							}
+							update(job, stage);
+						}
+
+						@Override
+						public void onRegistration(Throwable error) {
+							registered(job, error);
+						}
+					});
+			stageTimer.finish(PipelineMetrics.OUTCOME_SUCCESS);
+			job.setStageTimings(stageTimer.getBreakdown());
+			job.setResult(result);
+			update(job, PipelineStage.COMPLETED);
+		} catch (Exception e) {
+			logger.error("Job {} failed: {}", job.getId(), e.getMessage(), e);
+			stageTimer.finish(PipelineMetrics.OUTCOME_FAILURE);
+			job.setStageTimings(stageTimer.getBreakdown());
+			job.setError(e.getMessage());
+			update(job, PipelineStage.FAILED);
+		}
+	}
+
+	/**
+	 * Record the outcome of the background catalog registration and tell any
+	 * subscriber still listening.
+	 */
+	private void registered(ScaffoldJob job, Throwable error) {
+		emitterLock.lock();
+		try {
+			job.setRegistration(error == null ? REGISTRATION_DONE : REGISTRATION_FAILED);
+			job.setRegistrationError(error == null ? null : error.getMessage());
+			job.setUpdatedAt(Instant.now());
+			List<SseEmitter> jobEmitters = emitters.getOrDefault(job.getId(), List.of());
+			for (SseEmitter emitter : jobEmitters) {
+				sendRegistration(job, emitter);
+			}
+			completeIfSettled(job);
+		} finally {
+			emitterLock.unlock();
+		}
+	}
+
+	private void update(ScaffoldJob job, PipelineStage stage) {
+		emitterLock.lock();
+		try {
+			job.setStage(stage);
+			job.setUpdatedAt(Instant.now());
+			List<SseEmitter> jobEmitters = emitters.getOrDefault(job.getId(), List.of());
+			for (SseEmitter emitter : jobEmitters) {
+				send(job, emitter, stage);
+			}
+			completeIfSettled(job);
+		} finally {
+			emitterLock.unlock();
+		}
+	}
+
+	/**
+	 * A job is settled once it is finished and no registration is still
+	 * outstanding; until then the registration event may still arrive.
+	 */
+	private static boolean isSettled(ScaffoldJob job) {
+		return job.getStage().isTerminal() && !REGISTRATION_PENDING.equals(job.getRegistration());
+	}
+
+	private void completeIfSettled(ScaffoldJob job) {
+		if (!isSettled(job)) {
+			return;
+		}
+		List<SseEmitter> jobEmitters = emitters.remove(job.getId());
+		if (jobEmitters != null) {
+			jobEmitters.forEach(SseEmitter::complete);
+		}
+	}
+
+	private void sendRegistration(ScaffoldJob job, SseEmitter emitter) {
+		try {
+			emitter.send(SseEmitter.event().name("registration")
+					.data(Map.of("jobId", job.getId(), "registration", job.getRegistration())));
+		} catch (IOException | IllegalStateException e) {
+			emitter.completeWithError(e);
+		}
+	}
+
+	private void send(ScaffoldJob job, SseEmitter emitter, PipelineStage stage) {
+		try {
+			emitter.send(SseEmitter.event().name("stage")
+					.data(Map.of("jobId", job.getId(), "stage", stage, "timestamp", job.getUpdatedAt().toString())));
+		} catch (IOException | IllegalStateException e) {
+			emitter.completeWithError(e);
+		}
+	}
+
+	/**
+	 * Forget finished jobs once they are older than the retention period.
+	 */
+	@Scheduled(fixedDelayString = "${pipeline.jobs.cleanup-interval-ms:300000}")
+	public void evictFinishedJobs() {
+		Instant cutoff = Instant.now().minus(Duration.ofMillis(retentionMs));
+		jobs.values().removeIf(job -> job.getStage().isTerminal() && job.getUpdatedAt().isBefore(cutoff));
+	}
+
+}
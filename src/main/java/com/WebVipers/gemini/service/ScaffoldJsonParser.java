@@ -0,0 +1,290 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.WebVipers.gemini.model.GeneratedFile;
+import com.WebVipers.gemini.model.ScaffoldDocument;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+/**
+ * Incremental parser for structured scaffold output, a JSON object with a
+ * readme and a files array of path / name / content objects. Text can be fed
+ * in arbitrary chunks; a non-blocking Jackson parser hands each file to the
+ * {@link ScaffoldStreamParser.FileHandler} as soon as its object closes. When
+ * the output turns out not to be JSON, the model ignored the schema and the
+ * text is parsed in the $$$$ / &&&& / @@@@ format instead.
+ */
+public class ScaffoldJsonParser {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final ScaffoldStreamParser.FileHandler handler;
+
+	private final JsonParser parser;
+
+	private final ByteArrayFeeder feeder;
+
+	private final StringBuilder head = new StringBuilder();
+
+	private ScaffoldStreamParser delimited;
+
+	private boolean json;
+
+	private char highSurrogate;
+
+	private boolean inFiles;
+
+	private int depth;
+
+	private String path;
+
+	private String fileName;
+
+	private String content;
+
+	private String readme;
+
+	private final List<String> problems = new ArrayList<>();
+
+	private boolean failed;
+
+	private int fileCount;
+
+	private int fileObjects;
+
+	public ScaffoldJsonParser(ScaffoldStreamParser.FileHandler handler) throws IOException {
+		this.handler = handler;
+		this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+		this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+	}
+
+	/**
+	 * JSON schema of the structured output, with the number of files and the
+	 * length of each file bounded.
+	 */
+	public static String schema(int maxFiles, int maxFileLength) {
+		return """
+				{
+				  "type": "OBJECT",
+				  "properties": {
+				    "readme": { "type": "STRING", "description": "Explanation of the project in Markdown" },
+				    "files": {
+				      "type": "ARRAY",
+				      "maxItems": %d,
+				      "items": {
+				        "type": "OBJECT",
+				        "properties": {
+				          "path": { "type": "STRING", "description": "Folder relative to the project root, empty for the root" },
+				          "name": { "type": "STRING", "description": "File name without folder" },
+				          "content": { "type": "STRING", "maxLength": %d }
+				        },
+				        "required": ["path", "name", "content"],
+				        "propertyOrdering": ["path", "name", "content"]
+				      }
+				    }
+				  },
+				  "required": ["readme", "files"],
+				  "propertyOrdering": ["readme", "files"]
+				}
+				""".formatted(maxFiles, maxFileLength);
+	}
+
+	/**
+	 * Whether a complete response is structured output rather than the
+	 * delimiter format.
+	 */
+	public static boolean isJson(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isWhitespace(text.charAt(i))) {
+				return text.charAt(i) == '{';
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Parse a complete response, falling back to {@link ScaffoldParser} when it
+	 * is not JSON.
+	 */
+	public static ScaffoldDocument parse(CharSequence text) throws IOException {
+		if (!isJson(text)) {
+			return ScaffoldParser.parse(text);
+		}
+		ScaffoldDocument document = new ScaffoldDocument();
+		ScaffoldJsonParser parser = new ScaffoldJsonParser(
+				(path, fileName, content) -> document.getFiles().add(new GeneratedFile(path, fileName, content)));
+		parser.feed(text);
+		parser.finish();
+		document.getProblems().addAll(parser.getProblems());
+		document.setReadme(parser.getReadme());
+		return document;
+	}
+
+	/**
+	 * Feed the next chunk of model output.
+	 */
+	public void feed(CharSequence chunk) throws IOException {
+		if (delimited != null) {
+			delimited.feed(chunk);
+			return;
+		}
+		if (!json) {
+			head.append(chunk);
+			if (head.toString().isBlank()) {
+				return;
+			}
+			if (!isJson(head)) {
+				delimited = new ScaffoldStreamParser(handler);
+				delimited.feed(head);
+				head.setLength(0);
+				return;
+			}
+			json = true;
+			chunk = head.toString();
+			head.setLength(0);
+		}
+		if (!failed) {
+			feedJson(chunk);
+		}
+	}
+
+	/**
+	 * Signal the end of the output. A JSON document that was cut off is
+	 * reported in {@link #getProblems()}; files completed before the cut were
+	 * already handed over.
+	 */
+	public void finish() throws IOException {
+		if (delimited != null) {
+			delimited.finish();
+			return;
+		}
+		if (!json || failed) {
+			return;
+		}
+		feeder.endOfInput();
+		drain();
+		if (!failed && depth > 0) {
+			problems.add("Structured output ended before the JSON document was complete");
+		}
+	}
+
+	/**
+	 * Whether the output was structured JSON, as opposed to the delimiter
+	 * format or nothing at all.
+	 */
+	public boolean isStructured() {
+		return json;
+	}
+
+	public int getFileCount() {
+		return delimited != null ? delimited.getFileCount() : fileCount;
+	}
+
+	/**
+	 * The readme of a JSON response, or null.
+	 */
+	public String getReadme() {
+		return readme;
+	}
+
+	/**
+	 * Skipped file objects of a JSON response and the reason parsing stopped
+	 * early, if it did; for delimited output, the skipped blocks.
+	 */
+	public List<String> getProblems() {
+		return delimited != null ? delimited.getProblems() : problems;
+	}
+
+	private void feedJson(CharSequence chunk) throws IOException {
+		CharBuffer chars;
+		if (highSurrogate != 0) {
+			chars = CharBuffer.wrap(highSurrogate + chunk.toString());
+			highSurrogate = 0;
+		} else {
+			chars = CharBuffer.wrap(chunk);
+		}
+		// a surrogate pair split across chunks is encoded once both halves are here
+		if (chars.length() > 0 && Character.isHighSurrogate(chars.charAt(chars.length() - 1))) {
+			highSurrogate = chars.charAt(chars.length() - 1);
+			chars = chars.subSequence(0, chars.length() - 1);
+		}
+		ByteBuffer bytes = StandardCharsets.UTF_8.encode(chars);
+		feeder.feedInput(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.arrayOffset() + bytes.limit());
+		drain();
+	}
+
+	private void drain() throws IOException {
+		try {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+				onToken(token);
+			}
+		} catch (JsonProcessingException e) {
+			failed = true;
+			problems.add("Malformed structured output: " + e.getOriginalMessage());
+		}
+	}
+
+	private void onToken(JsonToken token) throws IOException {
+		switch (token) {
+			case START_OBJECT, START_ARRAY -> {
+				if (token == JsonToken.START_ARRAY && depth == 1 && "files".equals(parser.currentName())) {
+					inFiles = true;
+				} else if (token == JsonToken.START_OBJECT && inFiles && depth == 2) {
+					path = "";
+					fileName = null;
+					content = null;
+					fileObjects++;
+				}
+				depth++;
+			}
+			case END_OBJECT, END_ARRAY -> {
+				depth--;
+				if (inFiles && depth == 2 && token == JsonToken.END_OBJECT) {
+					onFile();
+				} else if (inFiles && depth == 1) {
+					inFiles = false;
+				}
+			}
+			case VALUE_STRING -> onString(parser.currentName(), parser.getText());
+			default -> {
+			}
+		}
+	}
+
+	private void onString(String name, String value) {
+		if (name == null) {
+			return;
+		}
+		if (depth == 1 && "readme".equals(name)) {
+			readme = value;
+		} else if (inFiles && depth == 3) {
+			switch (name) {
+				case "path" -> path = value;
+				case "name" -> fileName = value.trim();
+				case "content" -> content = value;
+				default -> {
+				}
+			}
+		}
+	}
+
+	private void onFile() throws IOException {
+		if (fileName == null || fileName.isEmpty() || content == null) {
+			problems.add("File " + fileObjects + " has no name or content");
+			return;
+		}
+		handler.onFile(ScaffoldParser.normalizeDirectory(path.trim()).trim(), fileName, content);
+		fileCount++;
+	}
+
+}
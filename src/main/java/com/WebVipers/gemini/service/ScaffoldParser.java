@@ -0,0 +1,168 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.WebVipers.gemini.model.GeneratedFile;
+import com.WebVipers.gemini.model.ScaffoldDocument;
+
+/**
+ * Single-pass parser for a complete response in the $$$$ / &&&& / @@@@
+ * scaffold format. Lines are located by index and never copied; only the
+ * short directory and file name headers become Strings, and each file body
+ * is a read-only view into the input. Blocks without a &&&& file name, a
+ * second block for a path already seen (the first one is kept) and a block
+ * left open at the end of the input are skipped and reported in
+ * {@link ScaffoldDocument#getProblems()}.
+ */
+public final class ScaffoldParser {
+
+	static final String DIRECTORY_MARKER = "$$$$";
+
+	static final String FILE_MARKER = "&&&&";
+
+	static final String BLOCK_MARKER = "@@@@";
+
+	private ScaffoldParser() {
+	}
+
+	public static ScaffoldDocument parse(Reader reader) throws IOException {
+		char[] chars = new char[8192];
+		int length = 0;
+		int read;
+		while ((read = reader.read(chars, length, chars.length - length)) != -1) {
+			length += read;
+			if (length == chars.length) {
+				chars = Arrays.copyOf(chars, chars.length * 2);
+			}
+		}
+		return parse(CharBuffer.wrap(chars, 0, length));
+	}
+
+	public static ScaffoldDocument parse(CharSequence text) {
+		ScaffoldDocument document = new ScaffoldDocument();
+		Set<String> names = new HashSet<>();
+		int length = text.length();
+		String path = "";
+		String fileName = null;
+		int blockStart = -1;
+		int blockLine = 0;
+		boolean carriageReturns = false;
+		int lineNumber = 0;
+		int lineStart = 0;
+		while (lineStart < length) {
+			int lineEnd = lineStart;
+			while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int end = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+			lineNumber++;
+			if (startsWith(text, lineStart, end, BLOCK_MARKER)) {
+				if (blockStart < 0) {
+					blockStart = Math.min(lineEnd + 1, length);
+					blockLine = lineNumber;
+					carriageReturns = false;
+				} else {
+					String problem = check(names, path, fileName, blockLine);
+					if (problem == null) {
+						document.getFiles().add(new GeneratedFile(path.trim(), fileName,
+								body(text, blockStart, lineStart, carriageReturns)));
+					} else {
+						document.getProblems().add(problem);
+					}
+					path = "";
+					fileName = null;
+					blockStart = -1;
+				}
+			} else if (blockStart >= 0) {
+				carriageReturns |= end != lineEnd;
+			} else if (startsWith(text, lineStart, end, DIRECTORY_MARKER)) {
+				path = directoryOf(text.subSequence(lineStart, end).toString());
+			} else if (startsWith(text, lineStart, end, FILE_MARKER)) {
+				fileName = fileNameOf(text.subSequence(lineStart, end).toString());
+			}
+			lineStart = lineEnd + 1;
+		}
+		if (blockStart >= 0) {
+			document.getProblems().add(unterminated(blockLine));
+		}
+		return document;
+	}
+
+	/**
+	 * Why the block that just closed is skipped, or null when its file is
+	 * kept. The file's path is recorded in names.
+	 */
+	static String check(Set<String> names, String path, String fileName, int blockLine) {
+		if (fileName == null || fileName.isEmpty()) {
+			return "Block opened at line " + blockLine + " has no " + FILE_MARKER + " file name";
+		}
+		String name = path.trim() + fileName;
+		int start = 0;
+		while (start < name.length() && name.charAt(start) == '/') {
+			start++;
+		}
+		name = name.substring(start);
+		if (!names.add(name)) {
+			return "Block opened at line " + blockLine + " repeats " + name + ", keeping the first one";
+		}
+		return null;
+	}
+
+	static String unterminated(int blockLine) {
+		return "Block opened at line " + blockLine + " is not closed by " + BLOCK_MARKER;
+	}
+
+	/**
+	 * View of a file body. Bodies with CRLF line endings are the only ones
+	 * copied, to normalize them to LF.
+	 */
+	private static CharSequence body(CharSequence text, int start, int end, boolean carriageReturns) {
+		if (carriageReturns) {
+			return text.subSequence(start, end).toString().replace("\r\n", "\n");
+		}
+		if (text instanceof CharBuffer buffer) {
+			return buffer.subSequence(start, end);
+		}
+		return CharBuffer.wrap(text, start, end);
+	}
+
+	static boolean startsWith(CharSequence text, int start, int end, String marker) {
+		if (end - start < marker.length()) {
+			return false;
+		}
+		for (int i = 0; i < marker.length(); i++) {
+			if (text.charAt(start + i) != marker.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Directory named by a $$$$ line, always ending in "/". The placeholder
+	 * "your-project-root" maps to the project root.
+	 */
+	static String directoryOf(String line) {
+		return normalizeDirectory(line.substring(line.lastIndexOf('$') + 1));
+	}
+
+	static String normalizeDirectory(String path) {
+		if (path.contains("your-project-root")) {
+			path = "";
+		}
+		if (!path.endsWith("/")) {
+			path = path + "/";
+		}
+		return path;
+	}
+
+	static String fileNameOf(String line) {
+		return line.substring(line.lastIndexOf('&') + 1).trim();
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incremental parser for the $$$$ / &&&& / @@@@ scaffold format. Text can be
+ * fed in arbitrary chunks as it streams in from the model; each file is handed
+ * to the {@link FileHandler} as soon as its closing @@@@ line is seen.
+ * Malformed blocks are skipped and reported in {@link #getProblems()} the
+ * same way {@link ScaffoldParser} reports them.
+ */
+public class ScaffoldStreamParser {
+
+	@FunctionalInterface
+	public interface FileHandler {
+		void onFile(String path, String fileName, String content) throws IOException;
+	}
+
+	private final FileHandler handler;
+
+	private final StringBuilder pending = new StringBuilder();
+
+	private final StringBuilder buffer = new StringBuilder();
+
+	private String path = "";
+
+	private String fileName = null;
+
+	private boolean readContent = false;
+
+	private int fileCount = 0;
+
+	private int lineNumber = 0;
+
+	private int blockLine = 0;
+
+	private final Set<String> names = new HashSet<>();
+
+	private final List<String> problems = new ArrayList<>();
+
+	public ScaffoldStreamParser(FileHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Feed the next chunk of model output. Only complete lines are parsed, the
+	 * remainder is kept until the next chunk or {@link #finish()}.
+	 */
+	public void feed(CharSequence chunk) throws IOException {
+		int start = 0;
+		for (int i = 0; i < chunk.length(); i++) {
+			if (chunk.charAt(i) == '\n') {
+				pending.append(chunk, start, i);
+				processLine(pending);
+				pending.setLength(0);
+				start = i + 1;
+			}
+		}
+		pending.append(chunk, start, chunk.length());
+	}
+
+	/**
+	 * Parse whatever is left after the last newline. A block still open is
+	 * reported in {@link #getProblems()}.
+	 */
+	public void finish() throws IOException {
+		if (pending.length() > 0) {
+			processLine(pending);
+			pending.setLength(0);
+		}
+		if (readContent) {
+			problems.add(ScaffoldParser.unterminated(blockLine));
+		}
+	}
+
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * Blocks skipped so far: no &&&& file name, a path already seen, or, after
+	 * {@link #finish()}, a block left open.
+	 */
+	public List<String> getProblems() {
+		return problems;
+	}
+
+	private void processLine(StringBuilder raw) throws IOException {
+		int end = raw.length();
+		if (end > 0 && raw.charAt(end - 1) == '\r') {
+			end--;
+		}
+		lineNumber++;
+		if (ScaffoldParser.startsWith(raw, 0, end, ScaffoldParser.BLOCK_MARKER)) {
+			readContent = !readContent;
+			if (readContent) {
+				blockLine = lineNumber;
+			} else {
+				String problem = ScaffoldParser.check(names, path, fileName, blockLine);
+				if (problem == null) {
+					handler.onFile(path.trim(), fileName, buffer.toString());
+					fileCount++;
+				} else {
+					problems.add(problem);
+				}
+				path = "";
+				fileName = null;
+				buffer.setLength(0);
+			}
+		} else if (readContent) {
+			buffer.append(raw, 0, end);
+			buffer.append('\n');
+		} else if (ScaffoldParser.startsWith(raw, 0, end, ScaffoldParser.DIRECTORY_MARKER)) {
+			path = ScaffoldParser.directoryOf(raw.substring(0, end));
+		} else if (ScaffoldParser.startsWith(raw, 0, end, ScaffoldParser.FILE_MARKER)) {
+			fileName = ScaffoldParser.fileNameOf(raw.substring(0, end));
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.WebVipers.gemini.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.WebVipers.gemini.model.PipelineStage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Collapses concurrent identical requests. The first request for a key runs
+ * the pipeline; requests with the same key that arrive while it is running
+ * wait for it, receive its stage events from then on, and share its result
+ * or failure. Nothing is cached once the run completes.
+ */
+@Component
+public class SingleFlight {
+
+	private static final Logger logger = LoggerFactory.getLogger(SingleFlight.class);
+
+	@FunctionalInterface
+	public interface Flight {
+		String run(PipelineListener listener) throws Exception;
+	}
+
+	private static final class Call implements PipelineListener {
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+		private final List<PipelineListener> listeners = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void onStage(PipelineStage stage) {
+			listeners.forEach(listener -> listener.onStage(stage));
+		}
+
+		@Override
+		public void onRegistration(Throwable error) {
+			listeners.forEach(listener -> listener.onRegistration(error));
+		}
+	}
+
+	private final Map<String, Call> calls = new ConcurrentHashMap<>();
+
+	private final MeterRegistry meterRegistry;
+
+	public SingleFlight(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+		Gauge.builder("pipeline.singleflight.inflight", calls, Map::size)
+				.description("Distinct prompts currently being generated").register(meterRegistry);
+	}
+
+	/**
+	 * Key for a request. The prompt is taken exactly as sent, since the spec
+	 * file name and commit message are derived from it, and a request that
+	 * bypasses the response cache never joins one that may be served from it.
+	 */
+	public static String key(String agent, String prompt, boolean bypassCache) {
+		return PipelineMetrics.agentTag(agent) + (bypassCache ? "\nbypass\n" : "\n") + prompt;
+	}
+
+	public String execute(String agent, String prompt, boolean bypassCache, PipelineListener listener, Flight flight)
+			throws Exception {
+		String key = key(agent, prompt, bypassCache);
+		Call call = new Call();
+		call.listeners.add(listener);
+		Call running = calls.putIfAbsent(key, call);
+		if (running != null) {
+			return join(agent, running, listener);
+		}
+		counter("pipeline.singleflight.leaders", agent).increment();
+		try {
+			String result = flight.run(call);
+			call.result.complete(result);
+			return result;
+		} catch (Exception e) {
+			call.result.completeExceptionally(e);
+			throw e;
+		} finally {
+			calls.remove(key, call);
+		}
+	}
+
+	private String join(String agent, Call running, PipelineListener listener) throws Exception {
+		counter("pipeline.singleflight.collapsed", agent).increment();
+		logger.info("Joining in-flight {} request instead of starting a new one", agent);
+		running.listeners.add(listener);
+		try {
+			return running.result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	private Counter counter(String name, String agent) {
+		return Counter.builder(name).tag("agent", PipelineMetrics.agentTag(agent)).register(meterRegistry);
+	}
+
+}
@@ -0,0 +1,160 @@
+package com.WebVipers.gemini.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import com.WebVipers.gemini.model.LlmAttachment;
+import com.WebVipers.gemini.model.LlmRequest;
+import com.WebVipers.gemini.model.LlmResponse;
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+
+/**
+ * Offline backend, selected with llm.provider=stub, that replays a recorded
+ * response (readme.txt by default) for every prompt. Calls take latency-ms,
+ * except that slow-percent of every hundred calls, spread evenly over the
+ * call sequence, take slow-latency-ms instead. That gives a repeatable tail
+ * for load tests and for exercising hedged requests. Uploads are read to the
+ * end and discarded. With gemini.context-cache.provider=local, requests may
+ * reference cached context, which is looked up there like the real API would.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "stub")
+public class StubLlmProvider implements LlmProvider, InitializingBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(StubLlmProvider.class);
+
+	@Value("${llm.stub.response:readme.txt}")
+	private String responseLocation;
+
+	@Value("${llm.stub.latency-ms:2000}")
+	private long latencyMs;
+
+	@Value("${llm.stub.slow-percent:0}")
+	private int slowPercent;
+
+	@Value("${llm.stub.slow-latency-ms:10000}")
+	private long slowLatencyMs;
+
+	@Value("${llm.stub.chunk-size:512}")
+	private int chunkSize;
+
+	@Autowired(required = false)
+	private LocalContextCacheProvider localContexts;
+
+	private final AtomicLong calls = new AtomicLong();
+
+	private final AtomicLong uploads = new AtomicLong();
+
+	private String recorded;
+
+	@Override
+	public void afterPropertiesSet() throws IOException {
+		// a zero chunk size would divide by zero and a negative one never advance
+		if (chunkSize < 1) {
+			throw new IllegalStateException("llm.stub.chunk-size must be at least 1, not " + chunkSize);
+		}
+		if (slowPercent < 0 || slowPercent > 100) {
+			throw new IllegalStateException("llm.stub.slow-percent must be between 0 and 100, not " + slowPercent);
+		}
+		if (latencyMs < 0 || slowLatencyMs < 0) {
+			throw new IllegalStateException("llm.stub.latency-ms and llm.stub.slow-latency-ms must not be negative");
+		}
+		Path file = Path.of(responseLocation);
+		if (Files.isRegularFile(file)) {
+			recorded = Files.readString(file);
+		} else {
+			try (InputStream inputStream = new ClassPathResource(responseLocation).getInputStream()) {
+				recorded = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+			}
+		}
+		logger.info("Stub LLM replaying {} ({} chars, {} ms latency)", responseLocation, recorded.length(),
+				latencyMs);
+	}
+
+	@Override
+	public LlmResponse generate(LlmRequest request) throws Exception {
+		TimeUnit.MILLISECONDS.sleep(latencyFor(request));
+		return response(request);
+	}
+
+	@Override
+	public LlmResponse stream(LlmRequest request, ChunkHandler handler) throws Exception {
+		int chunks = Math.max(1, (recorded.length() + chunkSize - 1) / chunkSize);
+		long pauseNanos = TimeUnit.MILLISECONDS.toNanos(latencyFor(request)) / chunks;
+		for (int start = 0; start < recorded.length(); start += chunkSize) {
+			TimeUnit.NANOSECONDS.sleep(pauseNanos);
+			handler.onChunk(recorded.substring(start, Math.min(recorded.length(), start + chunkSize)));
+		}
+		return response(request);
+	}
+
+	@Override
+	public boolean supportsContextCache() {
+		return localContexts != null;
+	}
+
+	@Override
+	public boolean supportsFileUpload() {
+		return true;
+	}
+
+	@Override
+	public LlmAttachment upload(InputStream content, long size, String mimeType, String displayName)
+			throws IOException {
+		try (content) {
+			content.transferTo(OutputStream.nullOutputStream());
+		}
+		LlmAttachment attachment = new LlmAttachment();
+		attachment.setDisplayName(displayName);
+		attachment.setMimeType(mimeType);
+		attachment.setSize(size);
+		attachment.setFileName("files/stub-" + uploads.incrementAndGet());
+		attachment.setFileUri("stub://" + attachment.getFileName());
+		return attachment;
+	}
+
+	private long latencyFor(LlmRequest request) {
+		return calls.getAndIncrement() * slowPercent % 100 < slowPercent ? slowLatencyMs : latencyMs;
+	}
+
+	private LlmResponse response(LlmRequest request) {
+		LlmResponse response = new LlmResponse(recorded);
+		response.getTokens().put("prompt", request.getPrompt().length() / 4);
+		response.getTokens().put("candidates", recorded.length() / 4);
+		if (request.getCachedContext() != null) {
+			response.getTokens().put("cached", cachedLength(request.getCachedContext()) / 4);
+		}
+		return response;
+	}
+
+	private int cachedLength(String handle) {
+		Content content = localContexts == null ? null : localContexts.get(handle);
+		if (content == null) {
+			// the real API answers an unknown or expired handle with an error as well
+			throw new IllegalStateException("Cached content " + handle + " not found");
+		}
+		int length = 0;
+		for (Part part : content.parts().orElseThrow()) {
+			length += part.inlineData().flatMap(blob -> blob.data()).map(data -> data.length)
+					.orElseGet(() -> part.text().map(String::length).orElse(0));
+		}
+		return length;
+	}
+
+}
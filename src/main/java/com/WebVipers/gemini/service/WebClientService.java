@@ -1,24 +1,64 @@
 package com.WebVipers.gemini.service;
 
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import io.netty.channel.ChannelOption;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
 
+/**
+ * Backstage HTTP client. Created on the first registration, so the Reactor
+ * Netty client is not built at startup.
+ */
 @Service
+@Lazy
 public class WebClientService {
-	
+
 	@Value("${backstage.access.token}")
 	private String backstageAccessToken;
-    
+
+	@Value("${backstage.retry.max-attempts:3}")
+	private int maxRetries;
+
+	@Value("${backstage.retry.min-backoff-ms:200}")
+	private long minBackoffMs;
+
+	@Value("${backstage.read-timeout-ms:10000}")
+	private long readTimeoutMs;
+
     private final WebClient webClient;
-    
-    public WebClientService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
+
+    public WebClientService(WebClient.Builder webClientBuilder,
+            @Value("${backstage.connect-timeout-ms:3000}") int connectTimeoutMs,
+            @Value("${backstage.read-timeout-ms:10000}") long readTimeoutMs) {
+        HttpClient httpClient = HttpClient.create()
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .responseTimeout(Duration.ofMillis(readTimeoutMs));
+        this.webClient = webClientBuilder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
     }
-    
+
     public <T, R> R callPostApi(String url, T requestBody, Class<R> responseType) {
+        return callPostApiAsync(url, requestBody, responseType)
+            .block(); // For synchronous call
+    }
+
+    /**
+     * Non-blocking POST with a response timeout and exponential-backoff retry
+     * on connection errors, timeouts, 429 and 5xx responses.
+     */
+    public <T, R> Mono<R> callPostApiAsync(String url, T requestBody, Class<R> responseType) {
         return webClient.post()
             .uri(url)
             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
@@ -26,7 +66,17 @@ public class WebClientService {
             .bodyValue(requestBody)
             .retrieve()
             .bodyToMono(responseType)
-            .block(); // For synchronous call
+            .timeout(Duration.ofMillis(readTimeoutMs))
+            .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(minBackoffMs))
+                .filter(WebClientService::isTransient));
+    }
+
+    private static boolean isTransient(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
     }
-    
+
 }
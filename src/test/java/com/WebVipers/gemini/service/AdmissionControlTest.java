@@ -0,0 +1,169 @@
+package com.WebVipers.gemini.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdmissionControlTest {
+
+	private static final long MAX_WAIT_MS = 300;
+
+	private SimpleMeterRegistry registry;
+
+	private AdmissionControl admission;
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+		// one scaffold at a time, so every further request has to queue
+		admission = new AdmissionControl(registry, 1, 4, MAX_WAIT_MS, 1, 4, MAX_WAIT_MS);
+		ReflectionTestUtils.setField(admission, "enabled", true);
+		ReflectionTestUtils.setField(admission, "maxQueuedPerClient", 4);
+	}
+
+	@Test
+	void releasedSlotIsHandedToTheWaitingRequest() throws Exception {
+		AdmissionControl.Permit holder = admission.acquire("Scaffold", "a");
+		CompletableFuture<AdmissionControl.Permit> waiter = acquireAsync("b");
+		awaitQueueDepth(1);
+		assertFalse(waiter.isDone());
+
+		holder.close();
+		AdmissionControl.Permit handedOff = waiter.get(5, TimeUnit.SECONDS);
+		assertEquals(0, gauge("admission.queue.depth"));
+		assertEquals(1, gauge("admission.inflight"));
+
+		handedOff.close();
+		assertEquals(0, gauge("admission.inflight"));
+	}
+
+	@Test
+	void waitingRequestTimesOutAtTheDeadline() throws Exception {
+		AdmissionControl.Permit holder = admission.acquire("Scaffold", "a");
+		long start = System.nanoTime();
+		CompletableFuture<AdmissionControl.Permit> waiter = acquireAsync("b");
+
+		ExecutionException failure = assertThrowsExecution(waiter);
+		assertInstanceOf(AdmissionRejectedException.class, failure.getCause());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= MAX_WAIT_MS);
+		assertEquals(0, gauge("admission.queue.depth"));
+		assertEquals(1.0, registry.get("admission.rejected").tag("reason", "timeout").counter().count());
+
+		holder.close();
+		assertEquals(0, gauge("admission.inflight"));
+	}
+
+	@Test
+	void interruptedRequestLeavesTheQueue() throws Exception {
+		AdmissionControl.Permit holder = admission.acquire("Scaffold", "a");
+		CompletableFuture<Throwable> outcome = new CompletableFuture<>();
+		Thread waiter = new Thread(() -> {
+			try {
+				admission.acquire("Scaffold", "b").close();
+				outcome.complete(null);
+			} catch (Throwable e) {
+				outcome.complete(e);
+			}
+		});
+		waiter.start();
+		awaitQueueDepth(1);
+
+		waiter.interrupt();
+		assertInstanceOf(InterruptedException.class, outcome.get(5, TimeUnit.SECONDS));
+		assertEquals(0, gauge("admission.queue.depth"));
+
+		// the freed slot is given back rather than handed to the request that left
+		holder.close();
+		assertEquals(0, gauge("admission.inflight"));
+		admission.acquire("Scaffold", "c").close();
+	}
+
+	@Test
+	void waitingClientsAreServedInTurn() throws Exception {
+		AdmissionControl.Permit holder = admission.acquire("Scaffold", "a");
+		CompletableFuture<AdmissionControl.Permit> b1 = acquireAsync("b");
+		awaitQueueDepth(1);
+		CompletableFuture<AdmissionControl.Permit> b2 = acquireAsync("b");
+		awaitQueueDepth(2);
+		CompletableFuture<AdmissionControl.Permit> c1 = acquireAsync("c");
+		awaitQueueDepth(3);
+
+		holder.close();
+		AdmissionControl.Permit first = b1.get(5, TimeUnit.SECONDS);
+		assertFalse(b2.isDone());
+		assertFalse(c1.isDone());
+
+		// c arrived after b's second request but is served before it
+		first.close();
+		AdmissionControl.Permit second = c1.get(5, TimeUnit.SECONDS);
+		assertFalse(b2.isDone());
+
+		second.close();
+		b2.get(5, TimeUnit.SECONDS).close();
+		assertEquals(0, gauge("admission.queue.depth"));
+		assertEquals(0, gauge("admission.inflight"));
+	}
+
+	@Test
+	void permitClosedTwiceIsReleasedOnce() throws Exception {
+		AdmissionControl.Permit holder = admission.acquire("Scaffold", "a");
+		CompletableFuture<AdmissionControl.Permit> waiter = acquireAsync("b");
+		awaitQueueDepth(1);
+
+		holder.close();
+		holder.close();
+		waiter.get(5, TimeUnit.SECONDS);
+		assertEquals(1, gauge("admission.inflight"));
+	}
+
+	private CompletableFuture<AdmissionControl.Permit> acquireAsync(String client) {
+		CompletableFuture<AdmissionControl.Permit> permit = new CompletableFuture<>();
+		new Thread(() -> {
+			try {
+				permit.complete(admission.acquire("Scaffold", client));
+			} catch (Throwable e) {
+				permit.completeExceptionally(e);
+			}
+		}).start();
+		return permit;
+	}
+
+	private static ExecutionException assertThrowsExecution(Future<?> future) throws Exception {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			return e;
+		} catch (TimeoutException e) {
+			throw new AssertionError("request neither admitted nor rejected", e);
+		}
+		throw new AssertionError("request was admitted");
+	}
+
+	private void awaitQueueDepth(int depth) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (gauge("admission.queue.depth") != depth) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("queue depth never reached " + depth);
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	private double gauge(String name) {
+		return registry.get(name).tag("agent", "scaffold").gauge().value();
+	}
+
+}
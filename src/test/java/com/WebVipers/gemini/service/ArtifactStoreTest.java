@@ -0,0 +1,102 @@
+package com.WebVipers.gemini.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.WebVipers.gemini.model.ArtifactGeneration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ArtifactStoreTest {
+
+	@TempDir
+	Path root;
+
+	private ArtifactStore store;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		store = new ArtifactStore(new SimpleMeterRegistry(), 64);
+		ReflectionTestUtils.setField(store, "enabled", true);
+		ReflectionTestUtils.setField(store, "directory", root.resolve("artifacts").toString());
+		ReflectionTestUtils.setField(store, "maxAgeMs", Long.MAX_VALUE / 2);
+		ReflectionTestUtils.setField(store, "maxGenerations", 100);
+		ReflectionTestUtils.setField(store, "maxBytes", Long.MAX_VALUE);
+		store.afterPropertiesSet();
+	}
+
+	@AfterEach
+	void tearDown() {
+		store.destroy();
+	}
+
+	@Test
+	void stagingCanBeDiscardedBeforeTheGenerationIsStored() throws Exception {
+		Path staging = root.resolve("staging");
+		write(staging, "src/Main.java", "class Main {}");
+		write(staging, "README.md", "readme");
+
+		var recording = store.record("Scaffold", "a service", staging);
+		IncrementalDirectorySync.deleteTree(staging);
+		ArtifactGeneration generation = recording.get().orElseThrow();
+
+		assertEquals(List.of("README.md", "src/Main.java"),
+				generation.getFiles().stream().map(file -> file.getPath()).toList());
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		store.writeZip(generation, zip);
+		assertTrue(zip.size() > 0);
+		assertFalse(Files.exists(root.resolve("artifacts/pending/" + generation.getId())));
+	}
+
+	@Test
+	void sweepDropsTheOldestGenerationsAndTheirBlobs() throws Exception {
+		ReflectionTestUtils.setField(store, "maxGenerations", 2);
+		for (int i = 0; i < 3; i++) {
+			Path staging = root.resolve("staging" + i);
+			write(staging, "README.md", "same readme");
+			write(staging, "App.java", "class App { int version = " + i + "; }");
+			store.record("Scaffold", "version " + i, staging).get();
+		}
+
+		store.sweep();
+
+		List<ArtifactGeneration> kept = store.find(null, null, null, null, 10);
+		assertEquals(List.of("version 2", "version 1"), kept.stream().map(ArtifactGeneration::getPrompt).toList());
+		// README.md is shared by the kept generations; the first App.java is gone
+		assertEquals(3, blobCount());
+
+		ArtifactStore reloaded = new ArtifactStore(new SimpleMeterRegistry(), 64);
+		ReflectionTestUtils.setField(reloaded, "enabled", true);
+		ReflectionTestUtils.setField(reloaded, "directory", root.resolve("artifacts").toString());
+		reloaded.afterPropertiesSet();
+		assertEquals(2, reloaded.find(null, null, null, null, 10).size());
+		reloaded.destroy();
+	}
+
+	private long blobCount() throws IOException {
+		try (Stream<Path> walk = Files.walk(root.resolve("artifacts/blobs"))) {
+			return walk.filter(Files::isRegularFile).count();
+		}
+	}
+
+	private static void write(Path root, String relative, String content) throws IOException {
+		Path file = root.resolve(relative);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+
+}
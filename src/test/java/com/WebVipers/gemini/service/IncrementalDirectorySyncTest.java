@@ -0,0 +1,73 @@
+package com.WebVipers.gemini.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IncrementalDirectorySyncTest {
+
+	private static final int OBJECTS = 2000;
+
+	@TempDir
+	Path root;
+
+	@Test
+	void keptDirectoriesAreNotWalked() throws IOException {
+		Path target = root.resolve("repo");
+		for (int i = 0; i < OBJECTS; i++) {
+			write(target, ".git/objects/" + String.format("%02x", i % 256) + "/" + i, "object " + i);
+		}
+		write(target, "src/Main.java", "class Main {}");
+		Path staging = root.resolve(".gemini-staging/request");
+		write(staging, "src/Main.java", "class Main {}");
+
+		IncrementalDirectorySync.Result result = IncrementalDirectorySync.sync(staging, target);
+
+		assertEquals(0, result.written());
+		assertEquals(1, result.unchanged());
+		// repo/.git, repo/src and repo/src/Main.java; nothing below .git
+		assertEquals(3, result.scanned());
+		assertTrue(Files.exists(target.resolve(".git/objects/00/0")));
+	}
+
+	@Test
+	void keptPathsSurviveAndStaleFilesAreDeleted() throws IOException {
+		Path target = root.resolve("repo");
+		write(target, ".git/HEAD", "ref: refs/heads/main");
+		write(target, ".gitignore", "target/");
+		write(target, ".github/workflows/build.yml", "on: push");
+		write(target, "docs/.gitkeep", "");
+		write(target, "old/Stale.java", "class Stale {}");
+		write(target, "src/Main.java", "class Main {}");
+		// a staging area configured inside the repository, with another request still in it
+		Path staging = target.resolve(".gemini-staging/request");
+		write(staging, "src/Main.java", "class Main { int changed; }");
+		write(target, ".gemini-staging/other/README.md", "other request");
+
+		IncrementalDirectorySync.Result result = IncrementalDirectorySync.sync(staging, target);
+
+		assertEquals(1, result.written());
+		assertEquals(1, result.deleted());
+		assertEquals("class Main { int changed; }", Files.readString(target.resolve("src/Main.java")));
+		assertFalse(Files.exists(target.resolve("old")));
+		assertTrue(Files.exists(target.resolve(".git/HEAD")));
+		assertTrue(Files.exists(target.resolve(".gitignore")));
+		assertTrue(Files.exists(target.resolve(".github/workflows/build.yml")));
+		assertTrue(Files.exists(target.resolve("docs/.gitkeep")));
+		assertTrue(Files.exists(target.resolve(".gemini-staging/other/README.md")));
+	}
+
+	private static void write(Path root, String relative, String content) throws IOException {
+		Path file = root.resolve(relative);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+
+}
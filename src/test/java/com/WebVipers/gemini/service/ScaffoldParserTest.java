@@ -0,0 +1,110 @@
+package com.WebVipers.gemini.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.WebVipers.gemini.model.GeneratedFile;
+import com.WebVipers.gemini.model.ScaffoldDocument;
+
+class ScaffoldParserTest {
+
+	@Test
+	void wellFormedResponseHasNoProblems() {
+		ScaffoldDocument document = ScaffoldParser.parse("""
+				Intro text
+				$$$$ your-project-root
+				&&&& pom.xml
+				@@@@
+				<project/>
+				@@@@
+				$$$$ src/main/java
+				&&&& App.java
+				@@@@
+				class App {}
+				@@@@
+				""");
+
+		assertTrue(document.isValid(), document.getProblems().toString());
+		assertEquals(2, document.getFiles().size());
+		GeneratedFile app = document.getFiles().get(1);
+		assertEquals("src/main/java/", app.getPath());
+		assertEquals("App.java", app.getFileName());
+		assertEquals("class App {}\n", app.getContent().toString());
+	}
+
+	@Test
+	void unterminatedBlockIsReported() {
+		ScaffoldDocument document = ScaffoldParser.parse("""
+				&&&& a.txt
+				@@@@
+				a
+				@@@@
+				&&&& b.txt
+				@@@@
+				cut off here
+				""");
+
+		assertEquals(List.of("a.txt"), names(document));
+		assertEquals(List.of("Block opened at line 6 is not closed by @@@@"), document.getProblems());
+	}
+
+	@Test
+	void blockWithoutFileNameIsReported() {
+		ScaffoldDocument document = ScaffoldParser.parse("""
+				$$$$ src
+				@@@@
+				no name
+				@@@@
+				&&&&
+				@@@@
+				empty name
+				@@@@
+				&&&& kept.txt
+				@@@@
+				kept
+				@@@@
+				""");
+
+		assertEquals(List.of("kept.txt"), names(document));
+		assertEquals(List.of("Block opened at line 2 has no &&&& file name",
+				"Block opened at line 6 has no &&&& file name"), document.getProblems());
+	}
+
+	@Test
+	void repeatedPathKeepsTheFirstFile() {
+		ScaffoldDocument document = ScaffoldParser.parse("""
+				$$$$ src
+				&&&& App.java
+				@@@@
+				first
+				@@@@
+				$$$$ /src/
+				&&&& App.java
+				@@@@
+				second
+				@@@@
+				""");
+
+		assertEquals(1, document.getFiles().size());
+		assertEquals("first\n", document.getFiles().get(0).getContent().toString());
+		assertEquals(List.of("Block opened at line 8 repeats src/App.java, keeping the first one"),
+				document.getProblems());
+	}
+
+	@Test
+	void carriageReturnsAreNormalized() {
+		ScaffoldDocument document = ScaffoldParser.parse("&&&& a.txt\r\n@@@@\r\none\r\ntwo\r\n@@@@\r\n");
+
+		assertTrue(document.isValid());
+		assertEquals("one\ntwo\n", document.getFiles().get(0).getContent().toString());
+	}
+
+	private static List<String> names(ScaffoldDocument document) {
+		return document.getFiles().stream().map(GeneratedFile::getFileName).toList();
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.WebVipers.gemini.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ScaffoldStreamParserTest {
+
+	private final List<String> files = new ArrayList<>();
+
+	private final ScaffoldStreamParser parser = new ScaffoldStreamParser(
+			(path, fileName, content) -> files.add(path + fileName + "=" + content));
+
+	@Test
+	void filesArriveWhateverTheChunking() throws IOException {
+		String response = """
+				$$$$ src
+				&&&& App.java
+				@@@@
+				class App {}
+				@@@@
+				&&&& README.md
+				@@@@
+				readme
+				@@@@""";
+		for (int i = 0; i < response.length(); i++) {
+			parser.feed(response.subSequence(i, i + 1));
+		}
+		parser.finish();
+
+		assertTrue(parser.getProblems().isEmpty(), parser.getProblems().toString());
+		assertEquals(List.of("src/App.java=class App {}\n", "README.md=readme\n"), files);
+	}
+
+	@Test
+	void unterminatedBlockIsReportedAtFinish() throws IOException {
+		parser.feed("&&&& a.txt\n@@@@\na\n@@@@\n&&&& b.txt\n@@@@\ncut");
+		assertTrue(parser.getProblems().isEmpty());
+
+		parser.finish();
+
+		assertEquals(List.of("a.txt=a\n"), files);
+		assertEquals(List.of("Block opened at line 6 is not closed by @@@@"), parser.getProblems());
+	}
+
+	@Test
+	void blockWithoutFileNameIsReported() throws IOException {
+		parser.feed("$$$$ src\n@@@@\nno name\n@@@@\n&&&&   \r\n@@@@\r\nblank name\r\n@@@@\r\n");
+		parser.finish();
+
+		assertTrue(files.isEmpty());
+		assertEquals(List.of("Block opened at line 2 has no &&&& file name",
+				"Block opened at line 6 has no &&&& file name"), parser.getProblems());
+	}
+
+	@Test
+	void repeatedPathKeepsTheFirstFile() throws IOException {
+		parser.feed("$$$$ src\n&&&& App.java\n@@@@\nfirst\n@@@@\n$$$$ src/\n&&&& App.java\n@@@@\nsecond\n@@@@\n");
+		parser.finish();
+
+		assertEquals(List.of("src/App.java=first\n"), files);
+		assertEquals(List.of("Block opened at line 8 repeats src/App.java, keeping the first one"),
+				parser.getProblems());
+	}
+
+	@Test
+	void delimitedOutputProblemsReachTheJsonParser() throws IOException {
+		ScaffoldJsonParser json = new ScaffoldJsonParser((path, fileName, content) -> files.add(fileName));
+		json.feed("&&&& a.txt\n@@@@\nopen");
+		json.finish();
+
+		assertEquals(List.of("Block opened at line 2 is not closed by @@@@"), json.getProblems());
+	}
+
+}